@@ -0,0 +1,25 @@
+package org.pfj.http.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.pfj.http.server.util.Utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Path normalization, performed for every incoming request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NormalizeBenchmark {
+    @Param({"/", "/v1/user/profile/", "/v1/user/profile", "//v1//user/list/a/b?x=1&y=2"})
+    private String path;
+
+    @Benchmark
+    public String normalize() {
+        return Utils.normalize(path);
+    }
+}
@@ -0,0 +1,12 @@
+package org.pfj.http.benchmark;
+
+import java.util.List;
+
+/**
+ * Typical small JSON payload used by benchmarks.
+ */
+public record Payload(String first, String last, String email, int age, List<String> roles) {
+    public static Payload sample() {
+        return new Payload("John", "Doe", "john.doe@gmail.com", 42, List.of("user", "admin"));
+    }
+}
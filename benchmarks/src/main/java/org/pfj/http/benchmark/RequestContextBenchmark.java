@@ -0,0 +1,71 @@
+package org.pfj.http.benchmark;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pfj.http.server.RequestContext;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.routing.Route;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Promise.success;
+
+/**
+ * Creation of {@link RequestContext} and access to request parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestContextBenchmark {
+    private final Configuration configuration = Configuration.allDefaults();
+    private final Route<?> route = get("/v1/user/list").json().from(request -> success(request.pathParams()));
+
+    private EmbeddedChannel channel;
+    private ChannelHandlerContext ctx;
+    private FullHttpRequest request;
+
+    @Setup
+    public void setup() {
+        channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ctx = channel.pipeline().firstContext();
+        request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/v1/user/list/a/b?x=1&y=2");
+        request.headers()
+            .set(HttpHeaderNames.HOST, "localhost")
+            .set(HttpHeaderNames.ACCEPT, "application/json")
+            .set(HttpHeaderNames.USER_AGENT, "jmh")
+            .set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public RequestContext create() {
+        return RequestContext.from(ctx, request, configuration).setRoute(route);
+    }
+
+    @Benchmark
+    public void pathParams(Blackhole blackhole) {
+        blackhole.consume(create().pathParams());
+    }
+
+    @Benchmark
+    public void queryParams(Blackhole blackhole) {
+        blackhole.consume(create().queryParams());
+    }
+
+    @Benchmark
+    public void requestHeaders(Blackhole blackhole) {
+        blackhole.consume(create().requestHeaders());
+    }
+}
@@ -0,0 +1,78 @@
+package org.pfj.http.benchmark;
+
+import io.netty.handler.codec.http.HttpMethod;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pfj.http.server.routing.Route;
+import org.pfj.http.server.routing.RouteSource;
+import org.pfj.http.server.routing.RoutingTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Promise.success;
+
+/**
+ * Compares radix tree based {@link RoutingTable} with previous {@link TreeMapRoutingTable}.
+ * <br/>
+ * Run with: <code>java -jar benchmarks/target/benchmarks.jar RoutingBenchmark -prof gc</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+    @Param({"10", "100", "1000"})
+    private int routeCount;
+
+    private RoutingTable radixTable;
+    private TreeMapRoutingTable treeMapTable;
+    private String[] paths;
+    private int index;
+
+    @Setup
+    public void setup() {
+        var routes = new ArrayList<Route<?>>();
+
+        IntStream.range(0, routeCount)
+            .forEach(i -> routes.add(get("/api/v" + (i % 3) + "/service" + i + "/resource").json().from(__ -> success(i))));
+
+        radixTable = RoutingTable.with(routes.stream().map(RouteSource.class::cast));
+        treeMapTable = new TreeMapRoutingTable(routes);
+        paths = requestPaths(routes);
+    }
+
+    @Benchmark
+    public void radixTree(Blackhole blackhole) {
+        blackhole.consume(radixTable.findRoute(HttpMethod.GET, nextPath()));
+    }
+
+    @Benchmark
+    public void treeMap(Blackhole blackhole) {
+        blackhole.consume(treeMapTable.findRoute(HttpMethod.GET, nextPath()));
+    }
+
+    private String nextPath() {
+        var path = paths[index];
+        index = (index + 1) % paths.length;
+        return path;
+    }
+
+    //Mix of exact matches, matches with extra tail segments and misses
+    private static String[] requestPaths(List<Route<?>> routes) {
+        var paths = new ArrayList<String>();
+
+        routes.forEach(route -> {
+            paths.add(route.path());
+            paths.add(route.path() + "12345/details/");
+        });
+        paths.add("/api/missing/");
+
+        return paths.toArray(String[]::new);
+    }
+}
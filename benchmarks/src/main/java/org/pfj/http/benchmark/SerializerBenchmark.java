@@ -0,0 +1,51 @@
+package org.pfj.http.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.pfj.http.server.config.serialization.DefaultSerializer;
+import org.pfj.http.server.config.serialization.Serializer;
+import org.pfj.lang.Result;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization and deserialization via {@link DefaultSerializer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializerBenchmark {
+    private static final TypeReference<Payload> PAYLOAD_TYPE = new TypeReference<>() {};
+
+    private final Serializer serializer = DefaultSerializer.withDefault();
+    private final Payload payload = Payload.sample();
+    private ByteBuf serialized;
+
+    @Setup
+    public void setup() {
+        serialized = serializer.serialize(payload)
+            .fold(cause -> {throw new IllegalStateException(cause.message());}, buffer -> buffer);
+    }
+
+    @Benchmark
+    public Result<ByteBuf> serialize() {
+        return serializer.serialize(payload)
+            .onSuccess(ByteBuf::release);
+    }
+
+    @Benchmark
+    public Result<ByteBuf> serializePooled() {
+        return serializer.serialize(payload, PooledByteBufAllocator.DEFAULT)
+            .onSuccess(ByteBuf::release);
+    }
+
+    @Benchmark
+    public Result<Payload> deserialize() {
+        return serializer.deserialize(serialized.duplicate(), PAYLOAD_TYPE);
+    }
+}
@@ -0,0 +1,37 @@
+package org.pfj.http.benchmark;
+
+import io.netty.handler.codec.http.HttpMethod;
+import org.pfj.http.server.routing.Route;
+import org.pfj.lang.Option;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.pfj.lang.Option.option;
+
+/**
+ * Previous {@link TreeMap}-based implementation of the routing table, kept as a baseline for {@link RoutingBenchmark}.
+ */
+final class TreeMapRoutingTable {
+    private final Map<HttpMethod, TreeMap<String, Route<?>>> routes = new HashMap<>();
+
+    TreeMapRoutingTable(List<Route<?>> routeList) {
+        routeList.forEach(route -> routes.computeIfAbsent(route.method(), __ -> new TreeMap<>()).put(route.path(), route));
+    }
+
+    Option<Route<?>> findRoute(HttpMethod method, String inputPath) {
+        var path = inputPath + "/";
+
+        return option(routes.get(method))
+            .flatMap(map -> option(map.floorEntry(path)))
+            .filter(routeEntry -> isSameOrStartOfPath(path, routeEntry.getKey()))
+            .map(Map.Entry::getValue);
+    }
+
+    private boolean isSameOrStartOfPath(String inputPath, String routePath) {
+        return (inputPath.length() == routePath.length() && inputPath.equals(routePath))
+            || (inputPath.length() > routePath.length() && inputPath.charAt(routePath.length() - 1) == '/');
+    }
+}
@@ -0,0 +1,80 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+import org.pfj.http.benchmark.Payload;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.routing.RoutingTable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.pfj.http.server.routing.Route.from;
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Promise.success;
+
+/**
+ * Full request processing: raw request bytes are passed through the pipeline built by {@link WebServerInitializer}
+ * (decoding, aggregation, routing, handler invocation, serialization and response encoding) using {@link EmbeddedChannel}.
+ * <br/>
+ * Resides in the server package in order to access package-private pipeline classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+    @Param({"/hello", "/v1/user/profile", "/v1/user/list/a/b?x=1"})
+    private String path;
+
+    private EmbeddedChannel channel;
+    private ByteBuf request;
+
+    @Setup
+    public void setup() {
+        var routingTable = RoutingTable.with(
+            get("/hello").text().from(request -> success("Hello world!")),
+            from(
+                "/v1/user",
+                get("/profile").json().from(request -> success(Payload.sample())),
+                get("/list").json().from(request -> success(request.pathParams()))
+            )
+        );
+
+        channel = new EmbeddedChannel(new WebServerInitializer(Configuration.allDefaults(), routingTable));
+        request = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer(
+            "GET " + path + " HTTP/1.1\r\n"
+            + "Host: localhost\r\n"
+            + "Accept: */*\r\n"
+            + "User-Agent: jmh\r\n"
+            + "\r\n",
+            StandardCharsets.US_ASCII));
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int roundTrip() {
+        channel.writeInbound(request.duplicate());
+
+        var bytes = 0;
+        Object message;
+
+        while ((message = channel.readOutbound()) != null) {
+            if (message instanceof ByteBuf buffer) {
+                bytes += buffer.readableBytes();
+            }
+            ReferenceCountUtil.release(message);
+        }
+
+        return bytes;
+    }
+}
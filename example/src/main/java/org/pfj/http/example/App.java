@@ -1,14 +1,21 @@
 package org.pfj.http.example;
 
+import io.netty.buffer.ByteBuf;
+import org.pfj.http.server.RequestContext;
 import org.pfj.http.server.config.Configuration;
 import org.pfj.http.server.error.WebError;
 import org.pfj.http.server.WebServer;
+import org.pfj.lang.Causes;
 import org.pfj.lang.Promise;
 
+import java.util.concurrent.Flow;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import static org.pfj.http.server.routing.Route.from;
 import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.http.server.routing.Route.post;
+import static org.pfj.http.server.routing.StreamingResponse.jsonLines;
 import static org.pfj.lang.Promise.failure;
 import static org.pfj.lang.Promise.success;
 
@@ -20,7 +27,11 @@ public static void main(final String[] args) {
     }
 
     public static WebServer buildServer() {
-        return WebServer.with(Configuration.allDefaults())
+        return buildServer(Configuration.allDefaults());
+    }
+
+    public static WebServer buildServer(Configuration configuration) {
+        return WebServer.with(configuration)
             .and(
                 //Full description
                 from("/hello1")
@@ -47,10 +58,14 @@ public static WebServer buildServer() {
                 get("/boom-functional")
                     .from(request -> failure(WebError.UNPROCESSABLE_ENTITY)),
 
-                //Long-running process
-                get("/delay")
+                //Long-running blocking process, invoked outside the event loop
+                get("/delay").blocking()
                     .from(request -> delayedResponse()),
 
+                //Streaming request body
+                post("/upload").streaming()
+                    .from(App::countBodyBytes),
+
                 //Nested routes
                 from(
                     "/v1",
@@ -58,7 +73,11 @@ public static WebServer buildServer() {
                         "/user",
                         get("/list").json().from(request -> success(request.pathParams())),
                         get("/query").json().from(request -> success(request.queryParams())),
-                        get("/profile").json().from(request -> success(new UserProfile("John", "Doe", "john.doe@gmail.com")))
+                        get("/profile").json().from(request -> success(new UserProfile("John", "Doe", "john.doe@gmail.com"))),
+                        //Streaming response, one JSON object per line
+                        get("/export").json().from(request -> success(jsonLines(
+                            IntStream.range(0, 10_000).mapToObj(i -> new UserProfile("John" + i, "Doe", "john.doe" + i + "@gmail.com"))
+                        )))
                     )
                 )
             )
@@ -68,14 +87,40 @@ public static WebServer buildServer() {
     private static final AtomicInteger counter = new AtomicInteger();
 
     private static Promise<Integer> delayedResponse() {
-        return Promise.<Integer>promise()
-            .async(promise -> {
-                try {
-                    Thread.sleep(250);
-                } catch (InterruptedException e) {
-                    //ignore
-                }
-                promise.succeed(counter.incrementAndGet());
-            });
+        try {
+            Thread.sleep(250);
+        } catch (InterruptedException e) {
+            //ignore
+        }
+        return success(counter.incrementAndGet());
+    }
+
+    private static Promise<Long> countBodyBytes(RequestContext request) {
+        return Promise.promise(promise -> request.bodyStream().subscribe(new Flow.Subscriber<ByteBuf>() {
+            private Flow.Subscription subscription;
+            private long count;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(ByteBuf item) {
+                count += item.readableBytes();
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                promise.fail(Causes.fromThrowable(throwable));
+            }
+
+            @Override
+            public void onComplete() {
+                promise.succeed(count);
+            }
+        }));
     }
 }
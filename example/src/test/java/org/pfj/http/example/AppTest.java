@@ -1,25 +1,49 @@
 package org.pfj.http.example;
 
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
 import org.pfj.http.server.WebServer;
+import org.pfj.http.server.config.Configuration;
 import org.pfj.lang.Promise;
 import org.pfj.lang.Result;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.hamcrest.core.StringStartsWith.startsWith;
 
 /**
  * Unit test for simple App.
  */
 public class AppTest {
-    private static final WebServer server = App.buildServer();
+    //Installed before any buffer is allocated, so detectors of all buffer types report to the test
+    private static final List<String> leaks = LeakRecordingFactory.install();
+
+    //Every buffer is tracked, so leaks on the response path are reported with access records
+    private static final WebServer server = App.buildServer(Configuration.builder()
+                                                                .withLeakDetection(ResourceLeakDetector.Level.PARANOID)
+                                                                .build());
     private static final Promise<Void> serverPromise = server.start();
 
     @AfterAll
-    static void waitServer() {
+    static void waitServer() throws InterruptedException {
         serverPromise.async(promise -> promise.resolve(Result.success(null))).join();
+
+        //Leaks are detected once lost buffers are collected and reported on subsequent allocations
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            PooledByteBufAllocator.DEFAULT.buffer(1).release();
+        }
+
+        assertTrue(leaks.isEmpty(), () -> String.join("\n", leaks));
     }
 
     @Test
@@ -111,6 +135,64 @@ void userProfileEndpointIsWorking() {
             .body("email", equalTo("john.doe@gmail.com"));
     }
 
+    @Test
+    void uploadEndpointReceivesBodyLargerThanMaxContentLength() {
+        var body = new byte[16 * 1024 * 1024];
+
+        given().baseUri("http://localhost:8000")
+            .body(body)
+            .post("/upload")
+            .then()
+            .statusCode(200)
+            .contentType("text/plain; charset=UTF-8")
+            .body(equalTo(Integer.toString(body.length)));
+    }
+
+    @Test
+    void exportEndpointStreamsJsonLines() {
+        var body = given().baseUri("http://localhost:8000")
+            .get("/v1/user/export")
+            .then()
+            .statusCode(200)
+            .contentType("application/x-ndjson")
+            .header("Transfer-Encoding", "chunked")
+            .extract()
+            .asString();
+
+        var lines = body.split("\n");
+
+        assertEquals(10_000, lines.length);
+        assertEquals("{\"first\":\"John0\",\"last\":\"Doe\",\"email\":\"john.doe0@gmail.com\"}", lines[0]);
+    }
+
+    private static final class LeakRecordingFactory extends ResourceLeakDetectorFactory {
+        private final List<String> leaks = new CopyOnWriteArrayList<>();
+
+        static List<String> install() {
+            var factory = new LeakRecordingFactory();
+
+            ResourceLeakDetectorFactory.setResourceLeakDetectorFactory(factory);
+            return factory.leaks;
+        }
+
+        @Override
+        public <T> ResourceLeakDetector<T> newResourceLeakDetector(Class<T> resource, int samplingInterval, long maxActive) {
+            return new ResourceLeakDetector<>(resource, samplingInterval) {
+                @Override
+                protected void reportTracedLeak(String resourceType, String records) {
+                    leaks.add(resourceType + " leak:" + records);
+                    super.reportTracedLeak(resourceType, records);
+                }
+
+                @Override
+                protected void reportUntracedLeak(String resourceType) {
+                    leaks.add(resourceType + " leak");
+                    super.reportUntracedLeak(resourceType);
+                }
+            };
+        }
+    }
+
     /*
 # 2021-10-26T11:11:31,954 [INFO/RoutingTable/main] - Route: GET: /v1/user/list/, contentType=APPLICATION_JSON
 # 2021-10-26T11:11:31,954 [INFO/RoutingTable/main] - Route: GET: /v1/user/query/, contentType=APPLICATION_JSON
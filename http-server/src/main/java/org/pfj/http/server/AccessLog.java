@@ -0,0 +1,146 @@
+package org.pfj.http.server;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.LiteBlockingWaitStrategy;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.pfj.http.server.config.AccessLogConfig;
+import org.pfj.http.server.routing.Route;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Access log. Event loops only copy references and numbers into preallocated ring buffer entries, entries are
+ * formatted and written to the logger by the background thread. If ring buffer is full, entries are dropped rather
+ * than blocking event loop.
+ */
+final class AccessLog {
+    private static final Logger log = LogManager.getLogger(AccessLog.class);
+    private static final long SHUTDOWN_TIMEOUT_S = 5;
+
+    private final Logger accessLog;
+    private final double sampleRate;
+    private final Writer writer = new Writer();
+    private final Disruptor<Entry> disruptor;
+    private final RingBuffer<Entry> ringBuffer;
+    private final LongAdder dropped = new LongAdder();
+
+    AccessLog(AccessLogConfig config) {
+        this.accessLog = LogManager.getLogger(config.loggerName());
+        this.sampleRate = config.sampleRate();
+        this.disruptor = new Disruptor<>(Entry::new, config.bufferSize(), new DefaultThreadFactory("access-log", true),
+                                         ProducerType.MULTI, new LiteBlockingWaitStrategy());
+        this.disruptor.handleEventsWith(writer);
+        this.ringBuffer = disruptor.getRingBuffer();
+    }
+
+    AccessLog start() {
+        disruptor.start();
+        return this;
+    }
+
+    //Disruptor shutdown does not wait for the writer thread which is not yet started, so backlog is checked here
+    void stop() {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SHUTDOWN_TIMEOUT_S);
+
+        while (disruptor.getSequenceValueFor(writer) < ringBuffer.getCursor()) {
+            if (System.nanoTime() - deadline > 0) {
+                log.warn("Access log is not flushed in time");
+                break;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        disruptor.halt();
+
+        if (dropped.sum() > 0) {
+            log.warn("{} access log entries were dropped because of buffer overflow", dropped.sum());
+        }
+    }
+
+    boolean sampled(int status) {
+        return sampleRate >= 1.0 || status >= 500 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    void record(SocketAddress remote, HttpMethod method, String uri, Route<?> route, int status, long bytes,
+                long latencyNanos) {
+        long sequence;
+
+        try {
+            sequence = ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            dropped.increment();
+            return;
+        }
+
+        try {
+            ringBuffer.get(sequence).set(remote, method, uri, route, status, bytes, latencyNanos);
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    private static final class Entry {
+        private SocketAddress remote;
+        private HttpMethod method;
+        private String uri;
+        private Route<?> route;
+        private int status;
+        private long bytes;
+        private long latencyNanos;
+
+        void set(SocketAddress remote, HttpMethod method, String uri, Route<?> route, int status, long bytes,
+                 long latencyNanos) {
+            this.remote = remote;
+            this.method = method;
+            this.uri = uri;
+            this.route = route;
+            this.status = status;
+            this.bytes = bytes;
+            this.latencyNanos = latencyNanos;
+        }
+
+        //References are not kept after entry is written
+        void clear() {
+            remote = null;
+            uri = null;
+            route = null;
+        }
+    }
+
+    //Format: remote "METHOD uri" status bytes latency_ms route
+    private final class Writer implements EventHandler<Entry> {
+        private final StringBuilder line = new StringBuilder(256);
+
+        @Override
+        public void onEvent(Entry entry, long sequence, boolean endOfBatch) {
+            line.setLength(0);
+
+            if (entry.remote instanceof InetSocketAddress address) {
+                line.append(address.getAddress().getHostAddress());
+            } else {
+                line.append(entry.remote);
+            }
+
+            line.append(" \"").append(entry.method).append(' ').append(entry.uri).append("\" ")
+                .append(entry.status).append(' ')
+                .append(entry.bytes).append(' ')
+                .append(entry.latencyNanos / 1000 / 1000.0).append("ms ")
+                .append(entry.route == null ? "-" : entry.route.path());
+
+            accessLog.info(line.toString());
+            entry.clear();
+        }
+    }
+}
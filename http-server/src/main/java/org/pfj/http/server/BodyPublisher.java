@@ -0,0 +1,208 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Flow;
+
+/**
+ * Publisher of request body chunks.
+ * <br/>
+ * All signals are delivered on the channel event loop. Buffer passed to {@link Flow.Subscriber#onNext(Object)} is valid
+ * only during the call, subscriber must retain it if it needs buffer later. Backpressure is propagated to the connection:
+ * reading from the channel is suspended while there is no outstanding demand. Only one subscriber is supported.
+ */
+final class BodyPublisher implements Flow.Publisher<ByteBuf> {
+    private static final Flow.Subscription NOOP_SUBSCRIPTION = new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private final ChannelHandlerContext ctx;
+    private final EventExecutor executor;
+    private final ArrayDeque<ByteBuf> queue = new ArrayDeque<>();
+
+    private Flow.Subscriber<? super ByteBuf> subscriber;
+    private long demand;
+    private boolean complete;
+    private boolean done;
+    private boolean draining;
+    private Throwable error;
+
+    BodyPublisher(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+        this.executor = ctx.executor();
+    }
+
+    /**
+     * Publisher for the already received body.
+     */
+    static BodyPublisher of(ChannelHandlerContext ctx, ByteBuf content) {
+        var publisher = new BodyPublisher(ctx);
+
+        publisher.queue.add(content);
+        publisher.complete = true;
+
+        return publisher;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuf> subscriber) {
+        inEventLoop(() -> {
+            if (this.subscriber != null) {
+                subscriber.onSubscribe(NOOP_SUBSCRIPTION);
+                subscriber.onError(new IllegalStateException("Request body can be subscribed only once"));
+                return;
+            }
+
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(new Subscription());
+            drain();
+        });
+    }
+
+    /**
+     * Accept next received chunk. Must be invoked from the event loop.
+     */
+    void push(ByteBuf chunk, boolean last) {
+        if (done || complete) {
+            chunk.release();
+            return;
+        }
+
+        if (chunk.isReadable()) {
+            queue.add(chunk);
+        } else {
+            chunk.release();
+        }
+
+        complete = last;
+        drain();
+
+        if (!complete && !done && demand == 0) {
+            ctx.channel().config().setAutoRead(false);
+        }
+    }
+
+    /**
+     * Whole body is received. Must be invoked from the event loop.
+     */
+    boolean received() {
+        return complete;
+    }
+
+    /**
+     * Terminate body stream with error (for example, if connection is closed). Must be invoked from the event loop.
+     */
+    void fail(Throwable cause) {
+        if (complete || done) {
+            return;
+        }
+
+        error = cause;
+        drain();
+    }
+
+    /**
+     * Release not yet delivered chunks and ignore the rest of the body. Invoked once response is sent.
+     */
+    void discard() {
+        inEventLoop(this::cancel);
+    }
+
+    private void drain() {
+        if (subscriber == null || done || draining) {
+            return;
+        }
+
+        draining = true;
+
+        try {
+            while (demand > 0 && !queue.isEmpty() && !done) {
+                var chunk = queue.poll();
+                demand--;
+
+                try {
+                    subscriber.onNext(chunk);
+                } finally {
+                    chunk.release();
+                }
+            }
+
+            if (done || !queue.isEmpty()) {
+                return;
+            }
+
+            if (error != null) {
+                terminate();
+                subscriber.onError(error);
+            } else if (complete) {
+                terminate();
+                subscriber.onComplete();
+            }
+        } finally {
+            draining = false;
+        }
+    }
+
+    private void request(long n) {
+        if (done) {
+            return;
+        }
+
+        if (n <= 0) {
+            error = new IllegalArgumentException("Requested number of elements must be positive");
+            queue.forEach(ByteBuf::release);
+            queue.clear();
+            drain();
+            return;
+        }
+
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        drain();
+
+        if (!done && !complete && demand > 0 && queue.isEmpty()) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    private void cancel() {
+        if (!done) {
+            terminate();
+        }
+    }
+
+    private void terminate() {
+        done = true;
+        queue.forEach(ByteBuf::release);
+        queue.clear();
+        ctx.channel().config().setAutoRead(true);
+    }
+
+    private void inEventLoop(Runnable action) {
+        if (executor.inEventLoop()) {
+            action.run();
+        } else {
+            executor.execute(action);
+        }
+    }
+
+    private final class Subscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+            inEventLoop(() -> BodyPublisher.this.request(n));
+        }
+
+        @Override
+        public void cancel() {
+            inEventLoop(BodyPublisher.this::cancel);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.pfj.http.server.metrics.ServerMetrics;
+import org.pfj.http.server.routing.Route;
+
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+
+/**
+ * Observes request/response exchanges right after HTTP codec and records them into {@link ServerMetrics} and
+ * {@link AccessLog} (either may be absent). Request is observed once its headers are decoded, response is considered
+ * complete once its last part is written to the socket. Exchanges are matched by order, since responses are always
+ * written in the order of requests.
+ * <br/>
+ * Exchange records are reused, so steady state observation does not allocate, except write promise for the last part
+ * of the response.
+ */
+final class ExchangeObserver extends ChannelDuplexHandler {
+    private final ServerMetrics metrics;
+    private final AccessLog accessLog;
+    private final ArrayDeque<Exchange> pending = new ArrayDeque<>(4);
+    private final ArrayDeque<Exchange> released = new ArrayDeque<>(4);
+
+    ExchangeObserver(ServerMetrics metrics, AccessLog accessLog) {
+        this.metrics = metrics;
+        this.accessLog = accessLog;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof HttpRequest request) {
+            var exchange = released.pollFirst();
+
+            pending.addLast((exchange == null ? new Exchange() : exchange).start(ctx, request));
+        }
+
+        ctx.fireChannelRead(msg);
+    }
+
+    /**
+     * Most recently received request is dispatched to the route. Must be called while request is being read.
+     */
+    void routed(Route<?> route) {
+        var exchange = pending.peekLast();
+
+        if (exchange == null) {
+            return;
+        }
+
+        exchange.route = route;
+
+        if (metrics != null) {
+            exchange.routeIndex = metrics.indexOf(route);
+            metrics.started(exchange.routeIndex);
+        }
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        var exchange = pending.peekFirst();
+
+        if (exchange == null) {
+            ctx.write(msg, promise);
+            return;
+        }
+
+        if (msg instanceof HttpResponse response) {
+            //Interim responses, like "100 Continue", are not accounted
+            if (response.status().codeClass() == HttpStatusClass.INFORMATIONAL) {
+                ctx.write(msg, promise);
+                return;
+            }
+            exchange.status = response.status().code();
+        }
+
+        exchange.bytes += contentLength(msg);
+
+        if (msg instanceof LastHttpContent) {
+            pending.pollFirst();
+            ctx.write(msg, promise.unvoid().addListener(exchange));
+        } else {
+            ctx.write(msg, promise);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        Exchange exchange;
+
+        //Requests which will never be responded
+        while ((exchange = pending.pollFirst()) != null) {
+            if (metrics != null && exchange.routeIndex >= 0) {
+                metrics.abandoned(exchange.routeIndex);
+            }
+        }
+
+        super.channelInactive(ctx);
+    }
+
+    private static long contentLength(Object msg) {
+        if (msg instanceof ByteBufHolder holder) {
+            return holder.content().readableBytes();
+        } else if (msg instanceof ByteBuf buffer) {
+            return buffer.readableBytes();
+        } else if (msg instanceof FileRegion region) {
+            return region.count();
+        }
+        return 0;
+    }
+
+    private final class Exchange implements ChannelFutureListener {
+        private long startNanos;
+        private SocketAddress remote;
+        private HttpMethod method;
+        private String uri;
+        private Route<?> route;
+        private int routeIndex;
+        private int status;
+        private long bytes;
+
+        Exchange start(ChannelHandlerContext ctx, HttpRequest request) {
+            startNanos = System.nanoTime();
+            remote = ctx.channel().remoteAddress();
+            method = request.method();
+            uri = request.uri();
+            route = null;
+            routeIndex = -1;
+            status = 0;
+            bytes = 0;
+            return this;
+        }
+
+        //Invoked on the event loop
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            var latency = System.nanoTime() - startNanos;
+
+            if (metrics != null) {
+                if (routeIndex >= 0) {
+                    metrics.completed(routeIndex, status, latency);
+                } else {
+                    metrics.completedUnmatched(status, latency);
+                }
+            }
+
+            if (accessLog != null && accessLog.sampled(status)) {
+                accessLog.record(remote, method, uri, route, status, bytes, latency);
+            }
+
+            released.addLast(this);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package org.pfj.http.server;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedNioFile;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+import org.pfj.http.server.error.WebError;
+import org.pfj.http.server.routing.FileResponse;
+import org.pfj.lang.Result;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Date;
+
+import static org.pfj.lang.Result.success;
+
+/**
+ * Sends {@link FileResponse}. Plaintext connections use {@link DefaultFileRegion} (i.e. <code>sendfile</code>), so file
+ * content is not copied through user space. When SSL is active, request arrived via HTTP/2 stream or connection uses
+ * io_uring transport, file is read in chunks via {@link ChunkedNioFile}.
+ * <br/>
+ * Handles conditional requests (<code>If-None-Match</code>, <code>If-Modified-Since</code>) and single byte range
+ * requests (<code>Range</code>, <code>If-Range</code>). Multiple ranges are not supported, whole file is sent instead.
+ * <br/>
+ * Reading file attributes and opening the file are blocking calls performed on the event loop. Both are fast for
+ * local files whose metadata was just accessed during path resolution, content itself is transferred asynchronously.
+ */
+final class FileSender {
+    private static final int CHUNK_SIZE = 8192;
+    private static final String BYTES_UNIT = "bytes=";
+
+    private FileSender() {
+    }
+
+    /**
+     * Send file using provided response head. Returns failure if file can't be accessed, in this case nothing is
+     * written to the channel. Response is written without flush, caller is responsible for flushing the channel.
+     */
+    static Result<ChannelFuture> send(ChannelHandlerContext ctx, HttpRequest request, HttpResponse response, FileResponse fileResponse) {
+        var file = fileResponse.file();
+        BasicFileAttributes attributes;
+
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return WebError.NOT_FOUND.result();
+        }
+
+        if (!attributes.isRegularFile()) {
+            return WebError.NOT_FOUND.result();
+        }
+
+        var size = attributes.size();
+        //HTTP dates have one second resolution
+        var lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+        var etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(size) + "\"";
+
+        response.headers()
+            .set(HttpHeaderNames.CONTENT_TYPE, fileResponse.contentType())
+            .set(HttpHeaderNames.ETAG, etag)
+            .set(HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(new Date(lastModified)))
+            .set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+
+        if (isNotModified(request.headers(), etag, lastModified)) {
+            response.setStatus(HttpResponseStatus.NOT_MODIFIED);
+            return success(writeEmpty(ctx, response));
+        }
+
+        var offset = 0L;
+        var length = size;
+        var range = request.headers().get(HttpHeaderNames.RANGE);
+
+        if (range != null && isRangeApplicable(request.headers(), etag, lastModified)) {
+            var bounds = parseRange(range, size);
+
+            if (bounds == null) {
+                response.setStatus(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.headers()
+                    .set(HttpHeaderNames.CONTENT_RANGE, "bytes */" + size)
+                    .setInt(HttpHeaderNames.CONTENT_LENGTH, 0);
+                return success(writeEmpty(ctx, response));
+            }
+
+            if (bounds.length > 0) {
+                offset = bounds[0];
+                length = bounds[1] - bounds[0] + 1;
+
+                response.setStatus(HttpResponseStatus.PARTIAL_CONTENT);
+                response.headers().set(HttpHeaderNames.CONTENT_RANGE, "bytes " + bounds[0] + "-" + bounds[1] + "/" + size);
+            }
+        }
+
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, length);
+
+        if (HttpMethod.HEAD.equals(request.method())) {
+            return success(writeEmpty(ctx, response));
+        }
+
+        FileChannel channel;
+
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return WebError.NOT_FOUND.result();
+        }
+
+        if (supportsFileRegion(ctx)) {
+            ctx.write(response, ctx.voidPromise());
+            ctx.write(new DefaultFileRegion(channel, offset, length), ctx.voidPromise());
+            return success(ctx.write(LastHttpContent.EMPTY_LAST_CONTENT));
+        }
+
+        //Input is prepared before response head is written, so failure still can be reported to the client
+        HttpChunkedInput input;
+
+        try {
+            input = new HttpChunkedInput(new ChunkedNioFile(channel, offset, length, CHUNK_SIZE));
+        } catch (IOException | RuntimeException e) {
+            close(channel);
+            return WebError.NOT_FOUND.result();
+        }
+
+        ctx.write(response, ctx.voidPromise());
+        return success(ctx.write(input));
+    }
+
+    private static void close(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            //Nothing to do, file was only read
+        }
+    }
+
+    //HTTP/2 streams can carry only data frames, so file region can't be passed through the stream codec. io_uring
+    //transport accepts only buffers.
+    private static boolean supportsFileRegion(ChannelHandlerContext ctx) {
+        return !(ctx.channel() instanceof Http2StreamChannel)
+               && !(ctx.channel() instanceof IOUringSocketChannel)
+               && ctx.pipeline().get(SslHandler.class) == null;
+    }
+
+    private static ChannelFuture writeEmpty(ChannelHandlerContext ctx, HttpResponse response) {
+        ctx.write(response, ctx.voidPromise());
+        return ctx.write(LastHttpContent.EMPTY_LAST_CONTENT);
+    }
+
+    private static boolean isNotModified(HttpHeaders headers, String etag, long lastModified) {
+        var ifNoneMatch = headers.get(HttpHeaderNames.IF_NONE_MATCH);
+
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.trim().equals("*") || containsTag(ifNoneMatch, etag);
+        }
+
+        return isNotModifiedSince(headers.get(HttpHeaderNames.IF_MODIFIED_SINCE), lastModified);
+    }
+
+    private static boolean isRangeApplicable(HttpHeaders headers, String etag, long lastModified) {
+        var ifRange = headers.get(HttpHeaderNames.IF_RANGE);
+
+        if (ifRange == null) {
+            return true;
+        }
+
+        var date = DateFormatter.parseHttpDate(ifRange);
+
+        return date == null
+            ? ifRange.trim().equals(etag)
+            : date.getTime() == lastModified;
+    }
+
+    private static boolean isNotModifiedSince(String ifModifiedSince, long lastModified) {
+        if (ifModifiedSince == null) {
+            return false;
+        }
+
+        var date = DateFormatter.parseHttpDate(ifModifiedSince);
+
+        return date != null && lastModified <= date.getTime();
+    }
+
+    private static boolean containsTag(String header, String etag) {
+        for (var tag : header.split(",")) {
+            var value = tag.trim();
+
+            //Weak comparison, as required for If-None-Match
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+
+            if (value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse single byte range.
+     *
+     * @return <code>null</code> if range is not satisfiable, empty array if range should be ignored (syntax not
+     *     supported) or array with first and last byte positions.
+     */
+    private static long[] parseRange(String header, long size) {
+        var value = header.trim();
+
+        if (!value.startsWith(BYTES_UNIT) || value.indexOf(',') >= 0) {
+            return new long[0];
+        }
+
+        var dash = value.indexOf('-', BYTES_UNIT.length());
+
+        if (dash < 0) {
+            return new long[0];
+        }
+
+        try {
+            var first = value.substring(BYTES_UNIT.length(), dash).trim();
+            var last = value.substring(dash + 1).trim();
+
+            if (first.isEmpty()) {
+                //Suffix range: last N bytes
+                var suffix = Long.parseLong(last);
+
+                return suffix <= 0 || size == 0
+                    ? null
+                    : new long[]{Math.max(0, size - suffix), size - 1};
+            }
+
+            var start = Long.parseLong(first);
+            var end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+
+            if (start >= size) {
+                return null;
+            }
+
+            return end < start
+                ? new long[0]
+                : new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.pfj.http.server;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Idle timeout of the HTTP/2 connection. Handler is placed before the HTTP/2 codec, so it observes traffic of all
+ * streams. Idle connection is closed only if it has no active streams, slow streams are handled by idle timeouts of
+ * their own pipelines. Connection is closed via the codec, so client receives <code>GOAWAY</code>.
+ */
+final class Http2IdleHandler extends IdleStateHandler {
+    private final Http2FrameCodec codec;
+
+    Http2IdleHandler(Http2FrameCodec codec, long readMillis, long writeMillis, long allMillis) {
+        super(readMillis, writeMillis, allMillis, TimeUnit.MILLISECONDS);
+        this.codec = codec;
+    }
+
+    @Override
+    protected void channelIdle(ChannelHandlerContext ctx, IdleStateEvent evt) {
+        if (codec.connection().numActiveStreams() == 0) {
+            ctx.channel().close();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.pfj.http.server;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-wide count of requests which are received but not yet responded. Counter is striped, so event loops do not
+ * contend on it. Once server starts draining, responses are sent with <code>Connection: close</code>.
+ */
+final class InFlightRequests {
+    private final LongAdder count = new LongAdder();
+    private volatile boolean draining;
+
+    void started() {
+        count.increment();
+    }
+
+    void completed() {
+        count.decrement();
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    void drain() {
+        draining = true;
+    }
+
+    boolean draining() {
+        return draining;
+    }
+}
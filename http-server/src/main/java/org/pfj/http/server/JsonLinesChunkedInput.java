@@ -0,0 +1,80 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+import org.pfj.http.server.config.serialization.Serializer;
+import org.pfj.http.server.routing.StreamingResponse.JsonLines;
+
+/**
+ * Serializes elements of {@link JsonLines} response into chunks of newline-delimited JSON. Several elements are packed
+ * into one chunk until it reaches {@link #CHUNK_SIZE} bytes.
+ */
+final class JsonLinesChunkedInput implements ChunkedInput<ByteBuf> {
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final int MAX_COMPONENTS = 256;
+    private static final ByteBuf NEWLINE = Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(new byte[]{'\n'}));
+
+    private final JsonLines response;
+    private final Serializer serializer;
+    private long progress;
+
+    JsonLinesChunkedInput(JsonLines response, Serializer serializer) {
+        this.response = response;
+        this.serializer = serializer;
+    }
+
+    @Override
+    public boolean isEndOfInput() {
+        return !response.items().hasNext();
+    }
+
+    @Override
+    public void close() {
+        response.onClose().run();
+    }
+
+    @Deprecated
+    @Override
+    public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+        return readChunk(ctx.alloc());
+    }
+
+    @Override
+    public ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+        var items = response.items();
+
+        if (!items.hasNext()) {
+            return null;
+        }
+
+        var chunk = allocator.compositeBuffer(MAX_COMPONENTS);
+
+        try {
+            while (items.hasNext() && chunk.readableBytes() < CHUNK_SIZE && chunk.numComponents() < MAX_COMPONENTS - 1) {
+                var line = serializer.serialize(items.next(), allocator)
+                    .fold(cause -> {throw new IllegalStateException(cause.message());}, buffer -> buffer);
+
+                chunk.addComponents(true, line, NEWLINE.duplicate());
+            }
+        } catch (RuntimeException e) {
+            chunk.release();
+            throw e;
+        }
+
+        progress += chunk.readableBytes();
+        return chunk;
+    }
+
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public long progress() {
+        return progress;
+    }
+}
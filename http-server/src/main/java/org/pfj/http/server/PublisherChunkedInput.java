@@ -0,0 +1,138 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedWriteHandler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+
+/**
+ * Adapter between response {@link Flow.Publisher} and {@link ChunkedWriteHandler}. Elements are requested from the
+ * publisher only as they are written to the channel, so at most {@link #PREFETCH} elements are kept in memory.
+ */
+final class PublisherChunkedInput implements ChunkedInput<ByteBuf>, Flow.Subscriber<ByteBuf> {
+    private static final int PREFETCH = 4;
+
+    private final Queue<ByteBuf> queue = new ConcurrentLinkedQueue<>();
+    private final ChunkedWriteHandler writer;
+
+    private volatile Flow.Subscription subscription;
+    private volatile boolean completed;
+    private volatile boolean closed;
+    private volatile Throwable error;
+    private long progress;
+
+    private PublisherChunkedInput(ChannelHandlerContext ctx) {
+        this.writer = ctx.pipeline().get(ChunkedWriteHandler.class);
+    }
+
+    static PublisherChunkedInput subscribe(ChannelHandlerContext ctx, Flow.Publisher<ByteBuf> publisher) {
+        var input = new PublisherChunkedInput(ctx);
+
+        publisher.subscribe(input);
+
+        return input;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+
+        if (closed) {
+            subscription.cancel();
+        } else {
+            subscription.request(PREFETCH);
+        }
+    }
+
+    @Override
+    public void onNext(ByteBuf item) {
+        if (closed) {
+            item.release();
+            return;
+        }
+
+        queue.add(item);
+
+        //Input may be closed concurrently after the check above, then item is left for nobody to release
+        if (closed) {
+            releaseQueued();
+            return;
+        }
+
+        writer.resumeTransfer();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = throwable;
+        writer.resumeTransfer();
+    }
+
+    @Override
+    public void onComplete() {
+        completed = true;
+        writer.resumeTransfer();
+    }
+
+    @Override
+    public boolean isEndOfInput() {
+        return completed && queue.isEmpty();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+
+        if (!completed && error == null && subscription != null) {
+            subscription.cancel();
+        }
+
+        releaseQueued();
+    }
+
+    private void releaseQueued() {
+        ByteBuf item;
+
+        while ((item = queue.poll()) != null) {
+            item.release();
+        }
+    }
+
+    @Deprecated
+    @Override
+    public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+        return readChunk(ctx.alloc());
+    }
+
+    @Override
+    public ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+        var item = queue.poll();
+
+        if (item == null) {
+            if (error != null) {
+                throw new IllegalStateException("Response stream failed", error);
+            }
+            return null;
+        }
+
+        progress += item.readableBytes();
+        subscription.request(1);
+
+        return item;
+    }
+
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public long progress() {
+        return progress;
+    }
+}
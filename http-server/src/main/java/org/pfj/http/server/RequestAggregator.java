@@ -0,0 +1,35 @@
+package org.pfj.http.server;
+
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+
+/**
+ * Aggregates request into {@link io.netty.handler.codec.http.FullHttpRequest} unless it targets streaming route. Requests
+ * to streaming routes and their content are passed down the pipeline as is.
+ */
+class RequestAggregator extends HttpObjectAggregator {
+    private final RouteResolver resolver;
+    private boolean streaming;
+
+    //Resolved route is reused by WebServerHandler
+    RequestAggregator(RouteResolver resolver, int maxContentLength) {
+        super(maxContentLength);
+        this.resolver = resolver;
+    }
+
+    @Override
+    public boolean acceptInboundMessage(Object msg) throws Exception {
+        if (msg instanceof HttpRequest request) {
+            streaming = resolver.routingTable().hasStreamingRoutes() && isStreaming(request);
+        }
+
+        return !streaming && super.acceptInboundMessage(msg);
+    }
+
+    private boolean isStreaming(HttpRequest request) {
+        return resolver.resolve(request)
+            .route()
+            .map(route -> route.options().streaming())
+            .or(false);
+    }
+}
@@ -2,61 +2,134 @@
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.util.AsciiString;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.pfj.http.server.cache.ResponseCache;
 import org.pfj.http.server.config.Configuration;
 import org.pfj.http.server.error.CompoundCause;
 import org.pfj.http.server.error.WebError;
+import org.pfj.http.server.routing.FileResponse;
+import org.pfj.http.server.routing.PrecompressedResponse;
 import org.pfj.http.server.routing.Redirect;
 import org.pfj.http.server.routing.Route;
+import org.pfj.http.server.routing.StreamingResponse;
 import org.pfj.http.server.config.serialization.ContentType;
 import org.pfj.http.server.util.Either;
+import org.pfj.http.server.util.HttpDate;
+import org.pfj.lang.Option;
 import org.pfj.lang.Promise;
 import org.pfj.lang.Result;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.time.Clock;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 
-import static io.netty.buffer.Unpooled.wrappedBuffer;
 import static org.pfj.http.server.error.CompoundCause.fromThrowable;
 import static org.pfj.http.server.config.serialization.ContentType.TEXT_PLAIN;
 import static org.pfj.http.server.util.Utils.*;
+import static org.pfj.lang.Option.option;
 import static org.pfj.lang.Promise.failure;
 import static org.pfj.lang.Result.success;
 
 public class RequestContext {
-    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.RFC_1123_DATE_TIME;
-    private static final String SERVER_NAME = "PFJ Netty Server";
-    private static final int PATH_PARAM_LIMIT = 1024;
+    private static final AsciiString SERVER_NAME = AsciiString.cached("PFJ Netty Server");
+    private static final AsciiString NDJSON_CONTENT_TYPE = AsciiString.cached("application/x-ndjson");
+    //Shared by all connections, scheduling and cancellation are O(1), resolution is sufficient for request deadlines
+    private static final Timer DEADLINE_TIMER = new HashedWheelTimer(new DefaultThreadFactory("request-deadline", true),
+                                                                     10, TimeUnit.MILLISECONDS);
 
     private final ChannelHandlerContext ctx;
-    private final FullHttpRequest request;
+    private final HttpRequest request;
     private final Configuration configuration;
-    private final HttpHeaders responseHeaders = new CombinedHttpHeaders(true);
+    private final String path;
+    private final ResponseSequencer sequencer;
+    private final int sequence;
+    private BodyPublisher bodyPublisher;
 
     private Supplier<List<String>> pathParamsSupplier = lazy(() -> pathParamsSupplier = value(initPathParams()));
     private Supplier<Map<String, List<String>>> queryStringParamsSupplier = lazy(() -> queryStringParamsSupplier = value(initQueryStringParams()));
     private Supplier<Map<String, String>> headersSupplier = lazy(() -> headersSupplier = value(initHeaders()));
     private Route<?> route;
-
-    private RequestContext(ChannelHandlerContext ctx, FullHttpRequest request, Configuration configuration) {
+    private HttpHeaders responseHeaders;
+    private Instant deadline;
+    private boolean compress = true;
+    private ResponseCache responseCache;
+    private String cacheKey;
+    private Runnable handlerCompleted = () -> {};
+
+    private RequestContext(ChannelHandlerContext ctx, HttpRequest request, String path, Configuration configuration,
+                           ResponseSequencer sequencer, BodyPublisher bodyPublisher) {
         this.ctx = ctx;
         this.request = request;
         this.configuration = configuration;
+        this.path = path;
+        this.sequencer = sequencer;
+        this.sequence = sequencer.next();
+        this.bodyPublisher = bodyPublisher;
     }
 
     public static RequestContext from(ChannelHandlerContext ctx, FullHttpRequest request, Configuration configuration) {
-        return new RequestContext(ctx, request, configuration);
+        return from(ctx, request, normalize(request.uri()), configuration, new ResponseSequencer(ctx, new InFlightRequests()));
+    }
+
+    static RequestContext from(ChannelHandlerContext ctx, FullHttpRequest request, String path, Configuration configuration,
+                               ResponseSequencer sequencer) {
+        return new RequestContext(ctx, request, path, configuration, sequencer, null);
+    }
+
+    static RequestContext streaming(ChannelHandlerContext ctx, HttpRequest request, String path, Configuration configuration,
+                                    ResponseSequencer sequencer, BodyPublisher bodyPublisher) {
+        return new RequestContext(ctx, request, path, configuration, sequencer, bodyPublisher);
+    }
+
+    /**
+     * Respond to the request which is rejected before processing, for example because server is overloaded. Context
+     * is not created for such requests, so response is built from constants only.
+     */
+    static void reject(ChannelHandlerContext ctx, HttpRequest request, ResponseSequencer sequencer, CompoundCause error) {
+        reject(ctx, request, sequencer, error, EmptyHttpHeaders.INSTANCE);
+    }
+
+    static void reject(ChannelHandlerContext ctx, HttpRequest request, ResponseSequencer sequencer, CompoundCause error,
+                       HttpHeaders headers) {
+        var keepAlive = HttpUtil.isKeepAlive(request) && !sequencer.draining();
+
+        sequencer.write(sequencer.next(), () -> {
+            var entity = ByteBufUtil.writeUtf8(ctx.alloc(), error.message());
+            var response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, error.status(), entity, false);
+
+            response.headers()
+                .add(headers)
+                .set(HttpHeaderNames.CONTENT_TYPE, TEXT_PLAIN.headerValue())
+                .setInt(HttpHeaderNames.CONTENT_LENGTH, entity.readableBytes())
+                .set(HttpHeaderNames.SERVER, SERVER_NAME)
+                .set(HttpHeaderNames.DATE, HttpDate.now());
+
+            if (!keepAlive) {
+                response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+                ctx.write(response).addListener(ChannelFutureListener.CLOSE);
+            } else {
+                ctx.write(response, ctx.voidPromise());
+            }
+        });
     }
 
     public RequestContext setRoute(Route<?> route) {
@@ -64,12 +137,63 @@ public RequestContext setRoute(Route<?> route) {
         return this;
     }
 
+    /**
+     * Store successful response in the cache under provided key. Key is null if response should not be cached.
+     */
+    RequestContext cacheIn(ResponseCache responseCache, String cacheKey) {
+        this.responseCache = responseCache;
+        this.cacheKey = cacheKey;
+        return this;
+    }
+
+    /**
+     * Run provided action once route handler is completed. Unlike promise returned by {@link #invokeAndRespond()},
+     * action is not triggered by request deadline, handler which is still running after deadline is not considered
+     * completed.
+     */
+    RequestContext whenHandlerCompleted(Runnable action) {
+        this.handlerCompleted = action;
+        return this;
+    }
+
+    /**
+     * Respond with the body found in the response cache, without invoking route handler.
+     */
+    RequestContext sendCached(ByteBuf body) {
+        sequencer.write(sequence, () -> sendResponse(HttpResponseStatus.OK, route().contentType(), body));
+        return this;
+    }
+
     public Route<?> route() {
         return route;
     }
 
+    public String path() {
+        return path;
+    }
+
+    /**
+     * Aggregated request body. For streaming routes body is not aggregated and empty buffer is returned, use
+     * {@link #bodyStream()} instead.
+     */
     public ByteBuf body() {
-        return request.content();
+        return request instanceof FullHttpRequest fullRequest
+            ? fullRequest.content()
+            : Unpooled.EMPTY_BUFFER;
+    }
+
+    /**
+     * Request body as a stream of chunks. For streaming routes chunks are delivered as they arrive, with backpressure
+     * applied to the connection. For other routes the whole body is delivered as single chunk.
+     * <br/>
+     * Signals are delivered on the channel event loop. Buffers are valid only during the
+     * {@link Flow.Subscriber#onNext(Object)} call, use {@link ByteBuf#retain()} to keep them longer.
+     */
+    public Flow.Publisher<ByteBuf> bodyStream() {
+        if (bodyPublisher == null) {
+            bodyPublisher = BodyPublisher.of(ctx, body().retain());
+        }
+        return bodyPublisher;
     }
 
     public String bodyAsString() {
@@ -77,7 +201,7 @@ public String bodyAsString() {
     }
 
     public <T> Result<T> fromJson(TypeReference<T> literal) {
-        return configuration.serializer().deserialize(request.content(), literal);
+        return configuration.serializer().deserialize(body(), literal);
     }
 
     public List<String> pathParams() {
@@ -92,31 +216,120 @@ public Map<String, String> requestHeaders() {
         return headersSupplier.get();
     }
 
+    /**
+     * Time by which request must be responded. Handlers may use it to limit time spent in downstream calls.
+     */
+    public Option<Instant> deadline() {
+        return option(deadline);
+    }
+
+    /**
+     * Time left until request deadline, negative if deadline already passed.
+     */
+    public Option<Duration> remainingTime() {
+        return deadline().map(value -> Duration.between(Instant.now(), value));
+    }
+
     public HttpHeaders responseHeaders() {
+        if (responseHeaders == null) {
+            responseHeaders = new CombinedHttpHeaders(true);
+        }
         return responseHeaders;
     }
 
     public RequestContext sendFailure(CompoundCause error) {
-        return sendResponse(error.status(), TEXT_PLAIN, wrap(error.message()));
+        sequencer.write(sequence, () -> respondWithFailure(error));
+        return this;
     }
 
-    public void invokeAndRespond() {
-        safeCall()
-            .onResult(result -> result
-                .flatMap(this::serializeResponse)
+    /**
+     * Invoke route handler and send response once it is completed.
+     *
+     * @return Promise resolved once handler is completed or request deadline is expired.
+     */
+    public Promise<?> invokeAndRespond() {
+        return withDeadline()
+            .onResult(result -> sequencer.write(sequence, () -> result
                 .fold(
-                    failure -> sendFailure(configuration.causeMapper().apply(failure)),
-                    success -> {
-                        //TODO: replace with switch pattern matching once it will be not a preview feature
-                        if (success instanceof Either.Left<Redirect, ByteBuf> redirect) {
-                            return sendRedirect(redirect.left());
-                        } else if (success instanceof Either.Right<Redirect, ByteBuf> buffer) {
-                            return sendSuccess(route().contentType(), buffer.right());
-                        } else {
-                            throw new UnsupportedOperationException("Can't happen");
-                        }
+                    failure -> respondWithFailure(configuration.causeMapper().apply(failure)),
+                    this::send
+                )));
+    }
+
+    private RequestContext respondWithFailure(CompoundCause error) {
+        return sendResponse(error.status(), TEXT_PLAIN, wrap(error.message()));
+    }
+
+    private RequestContext send(Object value) {
+        //TODO: replace with switch pattern matching once it will be not a preview feature
+        if (value instanceof StreamingResponse response) {
+            return sendStream(response);
+        } else if (value instanceof FileResponse response) {
+            return sendFile(response);
+        } else if (value instanceof PrecompressedResponse response) {
+            return sendPrecompressed(response);
+        } else {
+            return sendValue(value);
+        }
+    }
+
+    private RequestContext sendValue(Object value) {
+        return serializeResponse(value)
+            .fold(
+                failure -> respondWithFailure(configuration.causeMapper().apply(failure)),
+                success -> {
+                    //TODO: replace with switch pattern matching once it will be not a preview feature
+                    if (success instanceof Either.Left<Redirect, ByteBuf> redirect) {
+                        return sendRedirect(redirect.left());
+                    } else if (success instanceof Either.Right<Redirect, ByteBuf> buffer) {
+                        return sendSuccess(route().contentType(), cached(buffer.right()));
+                    } else {
+                        throw new UnsupportedOperationException("Can't happen");
                     }
-                ));
+                }
+            );
+    }
+
+    //Only body is cached, so responses with headers set by handler are not
+    private ByteBuf cached(ByteBuf body) {
+        if (cacheKey == null || responseHeaders != null) {
+            return body;
+        }
+
+        return responseCache.put(cacheKey, body, route().options().cache().ttl());
+    }
+
+    private RequestContext sendStream(StreamingResponse streamingResponse) {
+        var keepAlive = keepAlive();
+        var response = withCommonHeaders(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, false));
+
+        //TODO: replace with switch pattern matching once it will be not a preview feature
+        ChunkedInput<ByteBuf> input;
+
+        if (streamingResponse instanceof StreamingResponse.Chunks chunks) {
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, route().contentType().headerValue());
+            input = PublisherChunkedInput.subscribe(ctx, chunks.publisher());
+        } else if (streamingResponse instanceof StreamingResponse.JsonLines jsonLines) {
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, NDJSON_CONTENT_TYPE);
+            input = new JsonLinesChunkedInput(jsonLines, configuration.serializer());
+        } else {
+            throw new UnsupportedOperationException("Can't happen");
+        }
+
+        response.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+
+        discardBody();
+
+        ctx.write(response, ctx.voidPromise());
+        ctx.write(new HttpChunkedInput(input))
+            .addListener(future -> {
+                //Response is truncated if stream failed, so connection can't be reused
+                if (!keepAlive || !future.isSuccess()) {
+                    ctx.close();
+                }
+            });
+
+        return this;
     }
 
     private RequestContext sendSuccess(ContentType contentType, Object entity) {
@@ -135,30 +348,101 @@ private RequestContext sendRedirect(Redirect redirect) {
         response.headers()
             .set(HttpHeaderNames.LOCATION, URLEncoder.encode(redirect.url(), StandardCharsets.ISO_8859_1));
 
-        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        discardBody();
+        ctx.write(response).addListener(ChannelFutureListener.CLOSE);
 
         return this;
     }
 
     private RequestContext sendResponse(HttpResponseStatus status, ContentType contentType, ByteBuf entity) {
-        var keepAlive = HttpUtil.isKeepAlive(request);
-        var response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, entity);
+        var keepAlive = keepAlive();
+        var response = withCommonHeaders(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, entity, false));
 
         response.headers()
-            .add(responseHeaders)
-            .set(HttpHeaderNames.SERVER, SERVER_NAME)
-            .set(HttpHeaderNames.DATE, now().format(DATETIME_FORMATTER))
-            .set(HttpHeaderNames.CONTENT_TYPE, contentType.text())
-            .set(HttpHeaderNames.CONTENT_LENGTH, Long.toString(entity.maxCapacity()));
+            .set(HttpHeaderNames.CONTENT_TYPE, contentType.headerValue())
+            .setInt(HttpHeaderNames.CONTENT_LENGTH, entity.readableBytes());
+
+        discardBody();
 
         if (!keepAlive) {
-            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+            ctx.write(response).addListener(ChannelFutureListener.CLOSE);
         } else {
-            ctx.writeAndFlush(response, ctx.voidPromise());
+            ctx.write(response, ctx.voidPromise());
         }
         return this;
     }
 
+    private RequestContext sendPrecompressed(PrecompressedResponse precompressed) {
+        var gzip = acceptsEncoding(request.headers().get(HttpHeaderNames.ACCEPT_ENCODING), "gzip");
+
+        responseHeaders().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+
+        if (gzip) {
+            responseHeaders().set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP);
+        } else {
+            compress = false;
+        }
+
+        return sendResponse(HttpResponseStatus.OK, route().contentType(),
+                            (gzip ? precompressed.gzip() : precompressed.identity()).duplicate());
+    }
+
+    //File content is written as is, bypassing HTTP content encoders
+    private RequestContext sendFile(FileResponse fileResponse) {
+        compress = false;
+
+        var keepAlive = keepAlive();
+        var response = withCommonHeaders(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, false));
+
+        discardBody();
+
+        return FileSender.send(ctx, request, response, fileResponse)
+            .fold(
+                failure -> respondWithFailure(configuration.causeMapper().apply(failure)),
+                future -> {
+                    future.addListener(__ -> {
+                        if (!keepAlive || !future.isSuccess()) {
+                            ctx.close();
+                        }
+                    });
+                    return this;
+                }
+            );
+    }
+
+    //Headers provided by handler are validated on insertion, the rest are constants, so response does not validate them
+    private <R extends HttpResponse> R withCommonHeaders(R response) {
+        if (responseHeaders != null) {
+            response.headers().add(responseHeaders);
+        }
+
+        response.headers()
+            .set(HttpHeaderNames.SERVER, SERVER_NAME)
+            .set(HttpHeaderNames.DATE, HttpDate.now());
+
+        var compressionLevel = !compress ? 0 : route == null ? -1 : route.options().compressionLevel();
+
+        if (compressionLevel >= 0 && configuration.compression().isPresent()) {
+            response.headers().setInt(ResponseCompressor.LEVEL_HINT, compressionLevel);
+        }
+
+        if (sequencer.draining()) {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        }
+
+        return response;
+    }
+
+    private boolean keepAlive() {
+        return HttpUtil.isKeepAlive(request) && !sequencer.draining();
+    }
+
+    private void discardBody() {
+        if (bodyPublisher != null) {
+            bodyPublisher.discard();
+        }
+    }
+
     private Result<Either<Redirect, ByteBuf>> serializeResponse(Object value) {
         if (value instanceof Redirect redirect) {
             return success(Either.left(redirect));
@@ -166,17 +450,12 @@ private Result<Either<Redirect, ByteBuf>> serializeResponse(Object value) {
 
         return switch (route.contentType()) {
             case TEXT_PLAIN -> success(wrap(value)).map(Either::right);
-            case APPLICATION_JSON -> configuration.serializer().serialize(value).map(Either::right);
+            case APPLICATION_JSON -> configuration.serializer().serialize(value, ctx.alloc()).map(Either::right);
         };
     }
 
     private List<String> initPathParams() {
-        var elements = normalize(request.uri())
-            .substring(route.path().length())
-            .split("/", PATH_PARAM_LIMIT);
-
-        return List.of(elements)
-            .subList(0, elements.length - 1);
+        return route.pathParams(path);
     }
 
     private Map<String, List<String>> initQueryStringParams() {
@@ -191,6 +470,65 @@ private Map<String, String> initHeaders() {
         return headers;
     }
 
+    private Promise<?> withDeadline() {
+        var timeout = route.options().timeout().isZero()
+            ? configuration.requestTimeout()
+            : route.options().timeout();
+
+        if (timeout.isZero() || timeout.isNegative()) {
+            return invoke();
+        }
+
+        deadline = Instant.now().plus(timeout);
+
+        var promise = Promise.promise();
+        var expiration = DEADLINE_TIMER.newTimeout(
+            __ -> ctx.executor().execute(() -> promise.resolve(timeoutError().result())),
+            timeout.toNanos(), TimeUnit.NANOSECONDS);
+
+        invoke().onResult(result -> {
+            expiration.cancel();
+            promise.resolve(result.map(value -> value));
+        });
+
+        return promise;
+    }
+
+    //Client did not send whole request body in time, otherwise handler is the one who is late
+    private WebError timeoutError() {
+        return bodyPublisher != null && !bodyPublisher.received()
+            ? WebError.REQUEST_TIMEOUT
+            : WebError.GATEWAY_TIMEOUT;
+    }
+
+    private Promise<?> invoke() {
+        return call().onResultDo(handlerCompleted);
+    }
+
+    private Promise<?> call() {
+        if (!route.options().blocking()) {
+            return safeCall();
+        }
+
+        var promise = Promise.promise();
+
+        //Aggregated request is released once event loop handler returns, keep it until blocking handler is done
+        ReferenceCountUtil.retain(request);
+
+        try {
+            configuration.blockingExecutor()
+                .execute(() -> safeCall().onResult(result -> {
+                    ReferenceCountUtil.release(request);
+                    promise.resolve(result.map(value -> value));
+                }));
+        } catch (RejectedExecutionException e) {
+            ReferenceCountUtil.release(request);
+            promise.resolve(fromThrowable(WebError.SERVICE_UNAVAILABLE, e).result());
+        }
+
+        return promise;
+    }
+
     private Promise<?> safeCall() {
         try {
             return route().handler().handle(this);
@@ -199,11 +537,7 @@ private Promise<?> safeCall() {
         }
     }
 
-    private static ZonedDateTime now() {
-        return ZonedDateTime.now(Clock.systemUTC());
-    }
-
-    private static ByteBuf wrap(Object value) {
-        return wrappedBuffer(value.toString().getBytes(StandardCharsets.UTF_8));
+    private ByteBuf wrap(Object value) {
+        return ByteBufUtil.writeUtf8(ctx.alloc(), value.toString());
     }
 }
@@ -0,0 +1,112 @@
+package org.pfj.http.server;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.JdkZlibDecoder;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpContentDecompressor;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.util.AsciiString;
+
+import java.util.List;
+
+/**
+ * Decompresses request body chunk by chunk as it arrives, so handlers receive plain content regardless of the
+ * <code>Content-Encoding</code> used by the client. Decompressed body size is limited, so small compressed request
+ * can't be expanded into huge one: each chunk is decompressed into buffer of limited size and once total size exceeds
+ * the limit, connection is closed. Requests to aggregated routes are rejected with <code>413</code> by
+ * {@link RequestAggregator} before that.
+ * <br/>
+ * Requests with unsupported encodings are passed as is, with <code>Content-Encoding</code> header preserved, and
+ * rejected with <code>415 Unsupported Media Type</code> by {@link WebServerHandler}.
+ */
+final class RequestDecompressor extends HttpContentDecompressor {
+    static final AsciiString SUPPORTED_ENCODINGS =
+        AsciiString.cached(Brotli.isAvailable() ? "gzip, deflate, br" : "gzip, deflate");
+
+    private final int maxContentLength;
+    private boolean encoded;
+    private long decompressed;
+
+    RequestDecompressor(int maxContentLength) {
+        this.maxContentLength = maxContentLength;
+    }
+
+    /**
+     * Check if request body is left compressed because its encoding is not supported.
+     */
+    static boolean isEncoded(HttpRequest request) {
+        var encoding = request.headers().get(HttpHeaderNames.CONTENT_ENCODING);
+
+        return encoding != null && !HttpHeaderValues.IDENTITY.contentEqualsIgnoreCase(encoding.trim());
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, HttpObject msg, List<Object> out) throws Exception {
+        if (msg instanceof HttpRequest request) {
+            encoded = isEncoded(request);
+            decompressed = 0;
+        } else if (exceeded()) {
+            //Connection is already closed, remaining content is dropped
+            return;
+        }
+
+        var start = out.size();
+
+        super.decode(ctx, msg, out);
+
+        if (!encoded) {
+            return;
+        }
+
+        for (int i = start; i < out.size(); i++) {
+            if (out.get(i) instanceof HttpContent content) {
+                decompressed += content.content().readableBytes();
+            }
+        }
+    }
+
+    //Decoded part is passed down the pipeline first, so aggregator has a chance to respond before connection is closed
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        var exceeded = exceeded();
+
+        super.channelRead(ctx, msg);
+
+        if (!exceeded && exceeded()) {
+            ctx.close();
+        }
+    }
+
+    private boolean exceeded() {
+        return encoded && decompressed > maxContentLength;
+    }
+
+    @Override
+    protected EmbeddedChannel newContentDecoder(String contentEncoding) throws Exception {
+        if (HttpHeaderValues.GZIP.contentEqualsIgnoreCase(contentEncoding)
+            || HttpHeaderValues.X_GZIP.contentEqualsIgnoreCase(contentEncoding)) {
+            return decoder(ZlibWrapper.GZIP);
+        }
+
+        if (HttpHeaderValues.DEFLATE.contentEqualsIgnoreCase(contentEncoding)
+            || HttpHeaderValues.X_DEFLATE.contentEqualsIgnoreCase(contentEncoding)) {
+            return decoder(ZlibWrapper.ZLIB_OR_NONE);
+        }
+
+        return super.newContentDecoder(contentEncoding);
+    }
+
+    //Each chunk is decompressed into single buffer, so size of the buffer is limited as well
+    private EmbeddedChannel decoder(ZlibWrapper wrapper) {
+        var channel = ctx.channel();
+
+        return new EmbeddedChannel(channel.id(), channel.metadata().hasDisconnect(), channel.config(),
+                                   new JdkZlibDecoder(wrapper, maxContentLength));
+    }
+}
@@ -0,0 +1,126 @@
+package org.pfj.http.server;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.CompressionOptions;
+import io.netty.handler.codec.compression.StandardCompressionOptions;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.util.AsciiString;
+import org.pfj.http.server.config.CompressionConfig;
+import org.pfj.lang.Option;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compresses responses with encoding negotiated via <code>Accept-Encoding</code> header. Only responses of the
+ * configured content types and of the size above threshold are compressed. Level of the particular response can be
+ * overridden via {@link #LEVEL_HINT} header, which is set by {@link RequestContext} and removed here, so it never
+ * reaches the client. Level zero disables compression of the response.
+ */
+final class ResponseCompressor extends HttpContentCompressor {
+    static final AsciiString LEVEL_HINT = AsciiString.cached("x-pfj-compression-level");
+
+    private static final int WINDOW_BITS = 15;
+    private static final int MEM_LEVEL = 8;
+
+    private final CompressionConfig config;
+    private ChannelHandlerContext ctx;
+    private int level;
+
+    ResponseCompressor(CompressionConfig config) {
+        super(0, options(config.level()));
+        this.config = config;
+    }
+
+    //Brotli and zstd are available only if respective native libraries are present in classpath
+    private static CompressionOptions[] options(int level) {
+        var options = new ArrayList<CompressionOptions>(4);
+
+        options.add(StandardCompressionOptions.gzip(level, WINDOW_BITS, MEM_LEVEL));
+        options.add(StandardCompressionOptions.deflate(level, WINDOW_BITS, MEM_LEVEL));
+
+        if (Brotli.isAvailable()) {
+            options.add(StandardCompressionOptions.brotli());
+        }
+
+        if (Zstd.isAvailable()) {
+            options.add(StandardCompressionOptions.zstd());
+        }
+
+        return options.toArray(CompressionOptions[]::new);
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+        super.handlerAdded(ctx);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, HttpObject msg, List<Object> out) throws Exception {
+        if (msg instanceof HttpResponse response) {
+            var hint = response.headers().getInt(LEVEL_HINT);
+
+            level = hint == null ? config.level() : hint;
+            response.headers().remove(LEVEL_HINT);
+        }
+
+        super.encode(ctx, msg, out);
+    }
+
+    @Override
+    protected Result beginEncode(HttpResponse response, String acceptEncoding) throws Exception {
+        if (level == 0 || response.headers().contains(HttpHeaderNames.CONTENT_ENCODING)) {
+            return null;
+        }
+
+        var contentType = response.headers().get(HttpHeaderNames.CONTENT_TYPE);
+        var threshold = contentType == null ? Option.<Integer>empty() : config.threshold(contentType);
+
+        if (threshold.isEmpty()) {
+            return null;
+        }
+
+        //Response may be compressed or not, depending on the client, so caches should take it into account
+        response.headers().add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+
+        if (contentLength(response) < threshold.or(0)) {
+            return null;
+        }
+
+        if (level == config.level()) {
+            return super.beginEncode(response, acceptEncoding);
+        }
+
+        var encoding = determineEncoding(acceptEncoding);
+        var wrapper = "gzip".equals(encoding) ? ZlibWrapper.GZIP : "deflate".equals(encoding) ? ZlibWrapper.ZLIB : null;
+
+        //Route-specific level is applied to gzip and deflate, other encodings use their defaults
+        if (wrapper == null) {
+            return super.beginEncode(response, acceptEncoding);
+        }
+
+        var channel = ctx.channel();
+
+        return new Result(encoding, new EmbeddedChannel(channel.id(), channel.metadata().hasDisconnect(), channel.config(),
+                                                        ZlibCodecFactory.newZlibEncoder(wrapper, level, WINDOW_BITS, MEM_LEVEL)));
+    }
+
+    //Size of streaming responses is not known in advance, they are treated as large enough
+    private static long contentLength(HttpResponse response) {
+        if (response instanceof HttpContent content) {
+            return content.content().readableBytes();
+        }
+        return HttpUtil.getContentLength(response, Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,137 @@
+package org.pfj.http.server;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps responses in the order of requests received over the connection. HTTP/1.1 pipelined requests are dispatched
+ * immediately and handlers may complete in any order, but responses must be written in the order of requests.
+ * <br/>
+ * Each request gets sequence number on arrival. Response writes are always performed on the channel event loop. Write
+ * of the response which is not next in order is parked until all preceding responses are written.
+ * <br/>
+ * Response is considered written once all its parts are passed to the pipeline, outbound handlers (in particular
+ * {@link io.netty.handler.stream.ChunkedWriteHandler}) preserve order of the messages, so long streaming responses do
+ * not block sequencer.
+ * <br/>
+ * Writers do not flush. Responses written while connection is in the middle of the read batch are flushed once at the
+ * end of the batch, responses completed asynchronously are flushed once per sequencer run.
+ */
+final class ResponseSequencer {
+    private static final Logger log = LogManager.getLogger(ResponseSequencer.class);
+
+    private final ChannelHandlerContext ctx;
+    private final InFlightRequests inFlight;
+    private final IntObjectMap<Runnable> parked = new IntObjectHashMap<>(4);
+    private int issued;
+    private int expected;
+    private boolean reading;
+    private boolean closed;
+
+    ResponseSequencer(ChannelHandlerContext ctx, InFlightRequests inFlight) {
+        this.ctx = ctx;
+        this.inFlight = inFlight;
+    }
+
+    /**
+     * Allocate sequence number for the next request. Must be called on the event loop, in the order of requests.
+     */
+    int next() {
+        inFlight.started();
+        return issued++;
+    }
+
+    /**
+     * All received requests are responded.
+     */
+    boolean idle() {
+        return issued == expected;
+    }
+
+    /**
+     * Server is shutting down, connection should be closed once response is sent.
+     */
+    boolean draining() {
+        return inFlight.draining();
+    }
+
+    void readStarted() {
+        reading = true;
+    }
+
+    void readComplete() {
+        reading = false;
+        ctx.flush();
+    }
+
+    /**
+     * Perform response write for the request with given sequence number. Each sequence number must be used exactly
+     * once.
+     */
+    void write(int sequence, Runnable writer) {
+        if (ctx.executor().inEventLoop()) {
+            writeInOrder(sequence, writer);
+        } else {
+            ctx.executor().execute(() -> writeInOrder(sequence, writer));
+        }
+    }
+
+    /**
+     * Connection is closed. Order does not matter anymore, so parked writers and writers which arrive later are run
+     * immediately, and requests are accounted as completed, so draining server does not wait for them. Writes are
+     * flushed right away: outbound handlers may queue messages until flush (e.g.
+     * {@link io.netty.handler.stream.ChunkedWriteHandler}), flush on the closed channel fails them and releases their
+     * buffers.
+     */
+    void closed() {
+        closed = true;
+
+        var writers = new ArrayList<>(parked.values());
+
+        parked.clear();
+        writers.forEach(this::run);
+        ctx.flush();
+    }
+
+    private void writeInOrder(int sequence, Runnable writer) {
+        if (closed) {
+            run(writer);
+            ctx.flush();
+            return;
+        }
+
+        if (sequence != expected) {
+            parked.put(sequence, writer);
+            return;
+        }
+
+        var next = writer;
+
+        do {
+            expected++;
+            run(next);
+        } while (!parked.isEmpty() && (next = parked.remove(expected)) != null);
+
+        if (!reading) {
+            ctx.flush();
+        }
+    }
+
+    //Failed writer leaves the response incomplete, so connection can't be used anymore. Remaining writers are still
+    //run in order, their writes fail on the closed channel and release buffers.
+    private void run(Runnable writer) {
+        try {
+            writer.run();
+        } catch (RuntimeException e) {
+            log.warn("Response write failed, closing connection", e);
+            ctx.close();
+        } finally {
+            inFlight.completed();
+        }
+    }
+}
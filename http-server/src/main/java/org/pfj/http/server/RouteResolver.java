@@ -0,0 +1,54 @@
+package org.pfj.http.server;
+
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import org.pfj.http.server.routing.Route;
+import org.pfj.http.server.routing.RoutingTable;
+import org.pfj.lang.Option;
+
+import static org.pfj.http.server.util.Utils.normalize;
+
+/**
+ * Resolves route of the request, shared by handlers of the single connection (or HTTP/2 stream). Route may be needed
+ * before request is aggregated, see {@link RequestAggregator}, and then again by {@link WebServerHandler}. Result for
+ * the most recent method and URI is kept, so path is normalized and looked up once per request.
+ * <br/>
+ * Not thread safe, used on the channel event loop only.
+ */
+final class RouteResolver {
+    private final RoutingTable routingTable;
+    private HttpMethod method;
+    private String uri;
+    private String path;
+    private Option<Route<?>> route;
+
+    RouteResolver(RoutingTable routingTable) {
+        this.routingTable = routingTable;
+    }
+
+    RoutingTable routingTable() {
+        return routingTable;
+    }
+
+    /**
+     * Resolve route of the request. Lookup depends only on method and URI, so result for the same method and URI is
+     * reused even if it was computed for another request.
+     */
+    RouteResolver resolve(HttpRequest request) {
+        if (!request.method().equals(method) || !request.uri().equals(uri)) {
+            method = request.method();
+            uri = request.uri();
+            path = normalize(uri);
+            route = routingTable.findRoute(method, path);
+        }
+        return this;
+    }
+
+    String path() {
+        return path;
+    }
+
+    Option<Route<?>> route() {
+        return route;
+    }
+}
@@ -1,10 +1,12 @@
 package org.pfj.http.server;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
 import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.kqueue.KQueue;
@@ -12,17 +14,26 @@
 import io.netty.channel.kqueue.KQueueServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.UnixChannelOption;
 import io.netty.handler.logging.LoggingHandler;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.concurrent.Future;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import io.netty.util.internal.logging.Log4J2LoggerFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.pfj.http.server.cache.ResponseCache;
 import org.pfj.http.server.config.Configuration;
 import org.pfj.http.server.error.WebError;
+import org.pfj.http.server.metrics.ServerMetrics;
 import org.pfj.http.server.routing.RouteSource;
 import org.pfj.http.server.routing.RoutingTable;
 import org.pfj.lang.Causes;
+import org.pfj.lang.Option;
 import org.pfj.lang.Promise;
 import org.pfj.lang.Result;
 import org.pfj.lang.Tuple;
@@ -30,7 +41,14 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Result.success;
 import static org.pfj.lang.Tuple.tuple;
 
 public class WebServer {
@@ -39,13 +57,28 @@ public class WebServer {
     }
 
     private static final Logger log = LogManager.getLogger(WebServer.class);
+    private static final long DRAIN_CHECK_INTERVAL_MS = 50;
+    private static final long SHUTDOWN_TIMEOUT_S = 15;
 
     private final RoutingTable routingTable;
     private final Configuration configuration;
+    private final Option<ServerMetrics> metrics;
+    private final Option<AccessLog> accessLog;
+    private final Option<ResponseCache> responseCache;
+    private final InFlightRequests inFlight = new InFlightRequests();
+    private final List<Channel> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean stopping = new AtomicBoolean();
+    private final Promise<Void> stopPromise = Promise.promise();
+    private volatile ReactorConfig reactorConfig;
 
-    private WebServer(Configuration configuration, RoutingTable routingTable) {
+    private WebServer(Configuration configuration, List<RouteSource> routes) {
         this.configuration = configuration;
-        this.routingTable = routingTable;
+        this.routingTable = RoutingTable.with(Stream.concat(routes.stream(), metricsRoute().stream()));
+        this.responseCache = configuration.responseCache().map(ResponseCache::create);
+        this.metrics = configuration.metricsEnabled()
+            ? Option.present(ServerMetrics.create(routingTable, responseCache))
+            : Option.empty();
+        this.accessLog = configuration.accessLog().map(AccessLog::new);
     }
 
     public static Builder with(Configuration configuration) {
@@ -66,79 +99,236 @@ public Builder and(RouteSource... routeSources) {
         }
 
         public WebServer build() {
-            return new WebServer(configuration, RoutingTable.with(routes.stream()));
+            return new WebServer(configuration, routes);
         }
     }
 
+    /**
+     * Request metrics, present if enabled in configuration.
+     */
+    public Option<ServerMetrics> metrics() {
+        return metrics;
+    }
+
+    /**
+     * Response cache, present if enabled in configuration. May be used to invalidate cached responses once data
+     * they are built from is changed.
+     */
+    public Option<ResponseCache> responseCache() {
+        return responseCache;
+    }
+
+    private Option<RouteSource> metricsRoute() {
+        return configuration.metricsPath()
+            .map(path -> get(path).text().from(() -> success(metrics.map(ServerMetrics::scrape).or(""))));
+    }
+
+    /**
+     * Start server. Returned promise is resolved once server stops listening for incoming connections. Resolving the
+     * promise from outside stops the server, see {@link #stop()}.
+     */
     public Promise<Void> start() {
         log.info("Starting WebServer...");
 
         routingTable.print();
 
+        configuration.leakDetection().whenPresent(ResourceLeakDetector::setLevel);
+        accessLog.whenPresent(AccessLog::start);
+
         var reactorConfig = configureReactor();
+        this.reactorConfig = reactorConfig;
 
-        var promise = Promise.<Void>promise().onResultDo(() -> gracefulShutdown(reactorConfig));
+        var promise = Promise.<Void>promise().onResultDo(this::stop);
 
         try {
-            configureBootstrap(reactorConfig)
+            var bootstrap = configureBootstrap(reactorConfig)
+                .option(ChannelOption.SO_BACKLOG, configuration.backlog())
+                .option(ChannelOption.ALLOCATOR, configuration.allocator())
+                .childOption(ChannelOption.ALLOCATOR, configuration.allocator())
+                .childOption(ChannelOption.RCVBUF_ALLOCATOR, configuration.receiveAllocator())
                 .childOption(ChannelOption.SO_SNDBUF, configuration.sendBufferSize())
                 .childOption(ChannelOption.SO_RCVBUF, configuration.receiveBufferSize())
-                .handler(new LoggingHandler(configuration.logLevel()))
-                .childHandler(new WebServerInitializer(configuration, routingTable))
-                .bind(configuration.port())
-                .sync()
-                .channel()
-                .closeFuture()
-                .addListener(future -> decode(promise, future));
+                .childOption(ChannelOption.TCP_NODELAY, configuration.tcpNoDelay())
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, configuration.writeBufferWaterMark())
+                .childHandler(new WebServerInitializer(configuration, routingTable, inFlight,
+                                                       metrics.or((ServerMetrics) null), accessLog.or((AccessLog) null),
+                                                       responseCache.or((ResponseCache) null)));
+
+            configuration.listenerLogLevel()
+                .whenPresent(level -> bootstrap.handler(new LoggingHandler(level)));
+
+            //Server is stopped once all listeners are closed
+            var remaining = new AtomicInteger(reactorConfig.listeners());
+
+            for (int i = 0; i < reactorConfig.listeners(); i++) {
+                var bind = bootstrap.bind(configuration.port()).await();
+
+                //Failed promise stops the server, so listeners which are already bound are closed and event loop
+                //groups are shut down
+                if (!bind.isSuccess()) {
+                    log.error("Failed to bind listener to port {}", configuration.port(), bind.cause());
+                    decode(promise, bind);
+                    return promise;
+                }
+
+                var listener = bind.channel();
+
+                listeners.add(listener);
+                listener.closeFuture()
+                    .addListener(future -> {
+                        if (remaining.decrementAndGet() == 0 || !future.isSuccess()) {
+                            decode(promise, future);
+                        }
+                    });
+            }
         } catch (InterruptedException e) {
-            //In rare cases when .sync() will be interrupted, fail with error
+            //In rare cases when .await() will be interrupted, fail with error
             promise.resolve(WebError.SERVICE_UNAVAILABLE.result());
         }
 
         return promise;
     }
 
-    private void gracefulShutdown(ReactorConfig reactorConfig) {
-        reactorConfig.bossGroup().shutdownGracefully();
-        reactorConfig.workerGroup().shutdownGracefully();
+    /**
+     * Stop server gracefully. Server stops accepting new connections, responses to requests which are already
+     * received are sent with <code>Connection: close</code>. Once all in-flight requests are responded or drain timeout
+     * expires, remaining connections are closed. Returned promise is resolved once server is stopped.
+     */
+    public Promise<Void> stop() {
+        var reactorConfig = this.reactorConfig;
+
+        if (reactorConfig == null) {
+            return Promise.success(null);
+        }
+
+        if (stopping.compareAndSet(false, true)) {
+            log.info("Stopping WebServer, {} request(s) in flight", inFlight.count());
+
+            inFlight.drain();
+            listeners.forEach(WebServer::closeListener);
+            awaitDrain(reactorConfig, System.nanoTime() + configuration.drainTimeout().toNanos());
+        }
+
+        return stopPromise;
+    }
+
+    //Once stop() returns, new connections are refused. Listener can't be awaited from its own event loop though.
+    private static void closeListener(Channel channel) {
+        var future = channel.close();
+
+        if (!channel.eventLoop().inEventLoop()) {
+            future.awaitUninterruptibly();
+        }
+    }
+
+    private void awaitDrain(ReactorConfig reactorConfig, long deadline) {
+        var remaining = inFlight.count();
+
+        if (remaining > 0 && System.nanoTime() - deadline < 0) {
+            reactorConfig.bossGroup()
+                .schedule(() -> awaitDrain(reactorConfig, deadline), DRAIN_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        if (remaining > 0) {
+            log.warn("Drain timeout expired, {} request(s) are not responded", remaining);
+        }
+
+        //Requests are already drained, so there is no need to wait for quiet period
+        reactorConfig.bossGroup().shutdownGracefully(0, SHUTDOWN_TIMEOUT_S, TimeUnit.SECONDS);
+        reactorConfig.workerGroup().shutdownGracefully(0, SHUTDOWN_TIMEOUT_S, TimeUnit.SECONDS)
+            .addListener(future -> {
+                accessLog.whenPresent(AccessLog::stop);
+                responseCache.whenPresent(ResponseCache::clear);
+                log.info("WebServer stopped");
+                decode(stopPromise, future);
+            });
     }
 
     private ServerBootstrap configureBootstrap(ReactorConfig reactorConfig) {
-        return new ServerBootstrap()
+        var bootstrap = new ServerBootstrap()
             .group(reactorConfig.bossGroup(), reactorConfig.workerGroup())
             .channel(reactorConfig.serverChannelClass());
+
+        if (reactorConfig.serverChannelClass() == EpollServerSocketChannel.class) {
+            bootstrap
+                .option(UnixChannelOption.SO_REUSEPORT, reactorConfig.listeners() > 1)
+                .option(EpollChannelOption.EPOLL_MODE, configuration.epollMode())
+                .childOption(EpollChannelOption.EPOLL_MODE, configuration.epollMode());
+        } else if (reactorConfig.serverChannelClass() == IOUringServerSocketChannel.class) {
+            bootstrap.option(UnixChannelOption.SO_REUSEPORT, reactorConfig.listeners() > 1);
+        }
+
+        return bootstrap;
     }
 
     private ReactorConfig configureReactor() {
+        if (configuration.enableNative() && configuration.enableIoUring()) {
+            if (IOUring.isAvailable()) {
+                log.info("Using io_uring native transport, {} listener(s)", configuration.listeners());
+                return ReactorConfig.ioUring(configuration);
+            }
+            log.info("io_uring transport is not available: {}", IOUring.unavailabilityCause().getMessage());
+        }
+
         if (Epoll.isAvailable() && configuration.enableNative()) {
-            log.info("Using epoll native transport");
-            return ReactorConfig.epoll();
-        } else if (KQueue.isAvailable()&& configuration.enableNative()) {
+            log.info("Using epoll native transport, {} listener(s)", configuration.listeners());
+            return ReactorConfig.epoll(configuration);
+        }
+
+        if (configuration.listeners() > 1) {
+            log.warn("Multiple listeners require epoll or io_uring transport, using single listener");
+        }
+
+        if (KQueue.isAvailable() && configuration.enableNative()) {
             log.info("Using kqueue native transport");
-            return ReactorConfig.kqueue();
+            return ReactorConfig.kqueue(configuration);
         } else {
             log.info("Using NIO transport");
-            return ReactorConfig.nio();
+            return ReactorConfig.nio(configuration);
         }
     }
 
-    private void decode(Promise<Void> promise, Future<? super Void> future) {
+    private void decode(Promise<Void> promise, Future<?> future) {
         promise.resolve(future.isSuccess()
             ? Result.success(null)
             : Causes.fromThrowable(future.cause()).result());
     }
 
-    static record ReactorConfig(EventLoopGroup bossGroup, EventLoopGroup workerGroup, Class<? extends ServerChannel> serverChannelClass) {
-        static ReactorConfig epoll() {
-            return new ReactorConfig(new EpollEventLoopGroup(1), new EpollEventLoopGroup(), EpollServerSocketChannel.class);
+    static record ReactorConfig(EventLoopGroup bossGroup, EventLoopGroup workerGroup,
+                                Class<? extends ServerChannel> serverChannelClass, int listeners) {
+        private static final String ACCEPTOR_THREAD_NAME = "http-acceptor";
+
+        static ReactorConfig epoll(Configuration configuration) {
+            var listeners = Math.max(1, configuration.listeners());
+
+            return new ReactorConfig(new EpollEventLoopGroup(listeners, new DefaultThreadFactory(ACCEPTOR_THREAD_NAME)),
+                                     new EpollEventLoopGroup(configuration.workerThreads(), configuration.threadFactory()),
+                                     EpollServerSocketChannel.class,
+                                     listeners);
+        }
+
+        static ReactorConfig ioUring(Configuration configuration) {
+            var listeners = Math.max(1, configuration.listeners());
+
+            return new ReactorConfig(new IOUringEventLoopGroup(listeners, new DefaultThreadFactory(ACCEPTOR_THREAD_NAME)),
+                                     new IOUringEventLoopGroup(configuration.workerThreads(), configuration.threadFactory()),
+                                     IOUringServerSocketChannel.class,
+                                     listeners);
         }
 
-        static ReactorConfig kqueue() {
-            return new ReactorConfig(new KQueueEventLoopGroup(1), new KQueueEventLoopGroup(), KQueueServerSocketChannel.class);
+        static ReactorConfig kqueue(Configuration configuration) {
+            return new ReactorConfig(new KQueueEventLoopGroup(1, new DefaultThreadFactory(ACCEPTOR_THREAD_NAME)),
+                                     new KQueueEventLoopGroup(configuration.workerThreads(), configuration.threadFactory()),
+                                     KQueueServerSocketChannel.class,
+                                     1);
         }
 
-        public static ReactorConfig nio() {
-            return new ReactorConfig(new NioEventLoopGroup(1), new NioEventLoopGroup(), NioServerSocketChannel.class);
+        public static ReactorConfig nio(Configuration configuration) {
+            return new ReactorConfig(new NioEventLoopGroup(1, new DefaultThreadFactory(ACCEPTOR_THREAD_NAME)),
+                                     new NioEventLoopGroup(configuration.workerThreads(), configuration.threadFactory()),
+                                     NioServerSocketChannel.class,
+                                     1);
         }
     }
 }
@@ -1,21 +1,37 @@
 package org.pfj.http.server;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import org.pfj.http.server.cache.ResponseCache;
 import org.pfj.http.server.config.Configuration;
 import org.pfj.http.server.error.WebError;
-import org.pfj.http.server.routing.RoutingTable;
+import org.pfj.http.server.limit.RateLimiter;
+import org.pfj.http.server.routing.Route;
+import org.pfj.lang.Option;
 
-import static org.pfj.http.server.util.Utils.normalize;
+import java.nio.channels.ClosedChannelException;
 
 class WebServerHandler extends SimpleChannelInboundHandler<Object> {
     private final Configuration configuration;
-    private final RoutingTable routingTable;
+    private final RouteResolver resolver;
+    private final InFlightRequests inFlight;
+    private final ExchangeObserver observer;
+    private final ResponseCache responseCache;
+    private ResponseSequencer sequencer;
+    private BodyPublisher bodyPublisher;
 
-    WebServerHandler(Configuration configuration, RoutingTable routingTable) {
+    //Observer is null if both metrics and access log are disabled, response cache is null if disabled
+    WebServerHandler(Configuration configuration, RouteResolver resolver, InFlightRequests inFlight,
+                     ExchangeObserver observer, ResponseCache responseCache) {
         this.configuration = configuration;
-        this.routingTable = routingTable;
+        this.resolver = resolver;
+        this.inFlight = inFlight;
+        this.observer = observer;
+        this.responseCache = responseCache;
     }
 
     /**
@@ -26,7 +42,83 @@ class WebServerHandler extends SimpleChannelInboundHandler<Object> {
      */
     @Override
     public void channelRead0(ChannelHandlerContext ctx, Object msg) {
-        if (!(msg instanceof FullHttpRequest request)) {
+        sequencer.readStarted();
+
+        if (msg instanceof HttpRequest request) {
+            handle(ctx, request);
+        } else if (msg instanceof HttpContent content && bodyPublisher != null) {
+            var last = content instanceof LastHttpContent;
+            var publisher = bodyPublisher;
+
+            if (last) {
+                bodyPublisher = null;
+            }
+            publisher.push(content.content().retain(), last);
+        }
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        sequencer = new ResponseSequencer(ctx, inFlight);
+    }
+
+    private void handle(ChannelHandlerContext ctx, HttpRequest request) {
+        var path = resolver.resolve(request).path();
+
+        resolver.route()
+            .apply(
+                () -> createContext(ctx, request, path).sendFailure(WebError.NOT_FOUND),
+                route -> admit(ctx, request, path, route)
+            );
+    }
+
+    //Overloaded server rejects requests before any per-request state is allocated. Body of the streaming route is not
+    //accepted yet at this point, aggregated body is already received by then.
+    private void admit(ChannelHandlerContext ctx, HttpRequest request, String path, Route<?> route) {
+        if (observer != null) {
+            observer.routed(route);
+        }
+
+        //Body is left compressed only if its encoding is not supported
+        if (configuration.requestDecompression() && RequestDecompressor.isEncoded(request)) {
+            var headers = new DefaultHttpHeaders(false)
+                .set(HttpHeaderNames.ACCEPT_ENCODING, RequestDecompressor.SUPPORTED_ENCODINGS);
+
+            RequestContext.reject(ctx, request, sequencer, WebError.UNSUPPORTED_MEDIA_TYPE, headers);
+            return;
+        }
+
+        var retryAfter = route.options().rateLimiter().tryAcquire(ctx.channel(), request);
+
+        if (retryAfter > 0) {
+            var headers = new DefaultHttpHeaders(false)
+                .setInt(HttpHeaderNames.RETRY_AFTER, (int) RateLimiter.retryAfterSeconds(retryAfter));
+
+            RequestContext.reject(ctx, request, sequencer, WebError.TOO_MANY_REQUESTS, headers);
+            return;
+        }
+
+        //Cached responses are cheap, so they are not subject to concurrency limits
+        var cacheKey = cacheKey(request, path, route);
+        var cached = cacheKey == null ? Option.<ByteBuf>empty() : responseCache.get(cacheKey);
+
+        if (cached.isPresent()) {
+            cached.whenPresent(body -> createContext(ctx, request, path).setRoute(route).sendCached(body));
+            return;
+        }
+
+        var serverLimiter = configuration.limiter();
+
+        if (!serverLimiter.tryAcquire()) {
+            RequestContext.reject(ctx, request, sequencer, WebError.SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        var routeLimiter = route.options().limiter();
+
+        if (!routeLimiter.tryAcquire()) {
+            serverLimiter.cancel();
+            RequestContext.reject(ctx, request, sequencer, WebError.TOO_MANY_REQUESTS);
             return;
         }
 
@@ -34,11 +126,61 @@ public void channelRead0(ChannelHandlerContext ctx, Object msg) {
             ctx.write(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE));
         }
 
-        var context = RequestContext.from(ctx, request, configuration);
+        var start = System.nanoTime();
+
+        createContext(ctx, request, path)
+            .setRoute(route)
+            .cacheIn(responseCache, cacheKey)
+            //Permits are held while handler is running, even if request deadline has expired already
+            .whenHandlerCompleted(() -> {
+                var latency = System.nanoTime() - start;
 
-        routingTable.findRoute(request.method(), normalize(request.uri()))
-            .whenEmpty(() -> context.sendFailure(WebError.NOT_FOUND))
-            .whenPresent(route -> context.setRoute(route).invokeAndRespond());
+                routeLimiter.release(latency);
+                serverLimiter.release(latency);
+            })
+            .invokeAndRespond();
+    }
+
+    private String cacheKey(HttpRequest request, String path, Route<?> route) {
+        var options = route.options().cache();
+
+        if (responseCache == null || !options.enabled()) {
+            return null;
+        }
+
+        return ResponseCache.key(options, path, request);
+    }
+
+    private RequestContext createContext(ChannelHandlerContext ctx, HttpRequest request, String path) {
+        if (request instanceof FullHttpRequest fullRequest) {
+            return RequestContext.from(ctx, fullRequest, path, configuration, sequencer);
+        }
+
+        //Request to the streaming route, body will follow as separate chunks
+        bodyPublisher = new BodyPublisher(ctx);
+        return RequestContext.streaming(ctx, request, path, configuration, sequencer, bodyPublisher);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (bodyPublisher != null) {
+            bodyPublisher.fail(new ClosedChannelException());
+            bodyPublisher = null;
+        }
+        sequencer.closed();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent event) {
+            //Slow handlers are limited by request deadline, but client which does not read response can be dropped
+            if (sequencer.idle() || (event.state() == IdleState.WRITER_IDLE && !ctx.channel().isWritable())) {
+                ctx.close();
+            }
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
     }
 
     @Override
@@ -48,6 +190,6 @@ public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
 
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) {
-        ctx.flush();
+        sequencer.readComplete();
     }
 }
@@ -1,40 +1,173 @@
 package org.pfj.http.server;
 
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.http.HttpObjectAggregator;
-import io.netty.handler.codec.http.HttpRequestDecoder;
-import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
 import io.netty.handler.codec.http.cors.CorsHandler;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AsciiString;
+import org.pfj.http.server.cache.ResponseCache;
 import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.metrics.ServerMetrics;
 import org.pfj.http.server.routing.RoutingTable;
+import org.pfj.lang.Option;
 
-class WebServerInitializer extends ChannelInitializer<SocketChannel> {
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sets up connection pipeline. HTTP/1.1 connections are handled directly. When HTTP/2 is enabled, each HTTP/2 stream
+ * gets its own child channel with the same request handling pipeline as HTTP/1.1 connection, so routes are not aware
+ * of the protocol version.
+ */
+class WebServerInitializer extends ChannelInitializer<Channel> {
     private final Configuration configuration;
     private final RoutingTable routingTable;
+    private final InFlightRequests inFlight;
+    private final ServerMetrics metrics;
+    private final AccessLog accessLog;
+    private final ResponseCache responseCache;
 
     WebServerInitializer(Configuration configuration, RoutingTable routingTable) {
+        this(configuration, routingTable, configuration.responseCache().map(ResponseCache::create));
+    }
+
+    private WebServerInitializer(Configuration configuration, RoutingTable routingTable, Option<ResponseCache> cache) {
+        this(configuration, routingTable, new InFlightRequests(),
+             configuration.metricsEnabled() ? ServerMetrics.create(routingTable, cache) : null, null,
+             cache.or((ResponseCache) null));
+    }
+
+    //Metrics, access log and response cache are null if disabled
+    WebServerInitializer(Configuration configuration, RoutingTable routingTable, InFlightRequests inFlight,
+                         ServerMetrics metrics, AccessLog accessLog, ResponseCache responseCache) {
         this.configuration = configuration;
         this.routingTable = routingTable;
+        this.inFlight = inFlight;
+        this.metrics = metrics;
+        this.accessLog = accessLog;
+        this.responseCache = responseCache;
     }
 
     @Override
-    public void initChannel(SocketChannel channel) {
-        var pipeline = configureSsl(channel)
-            .addLast(new HttpResponseEncoder())
-            .addLast(new HttpRequestDecoder())
-            .addLast(new HttpObjectAggregator(configuration.maxContentLen()));
+    public void initChannel(Channel channel) {
+        configuration.sslContext()
+            .apply(() -> configurePlaintext(channel.pipeline()),
+                   sslContext -> configureSsl(channel, sslContext));
+    }
+
+    private void configurePlaintext(ChannelPipeline pipeline) {
+        if (!configuration.enableHttp2()) {
+            configureHttp1(pipeline);
+            return;
+        }
+
+        var sourceCodec = new HttpServerCodec();
+        var upgradeHandler = new HttpServerUpgradeHandler(sourceCodec, this::upgradeCodec, configuration.maxContentLen());
+
+        pipeline.addLast(new CleartextHttp2ServerUpgradeHandler(sourceCodec, upgradeHandler, http2Handler()));
+        configureHttpHandlers(pipeline);
+    }
+
+    private void configureSsl(Channel channel, SslContext sslContext) {
+        var pipeline = channel.pipeline()
+            .addLast(sslContext.newHandler(channel.alloc()));
+
+        if (!configuration.enableHttp2()) {
+            configureHttp1(pipeline);
+            return;
+        }
+
+        pipeline.addLast(new ApplicationProtocolNegotiationHandler(ApplicationProtocolNames.HTTP_1_1) {
+            @Override
+            protected void configurePipeline(ChannelHandlerContext ctx, String protocol) {
+                switch (protocol) {
+                    case ApplicationProtocolNames.HTTP_2 -> ctx.pipeline().addLast(http2Handler());
+                    case ApplicationProtocolNames.HTTP_1_1 -> configureHttp1(ctx.pipeline());
+                    default -> throw new IllegalStateException("Unsupported protocol: " + protocol);
+                }
+            }
+        });
+    }
+
+    private HttpServerUpgradeHandler.UpgradeCodec upgradeCodec(CharSequence protocol) {
+        if (!AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)) {
+            return null;
+        }
+
+        var codec = Http2FrameCodecBuilder.forServer().build();
+
+        return new Http2ServerUpgradeCodec(codec, new Http2Installer(codec));
+    }
+
+    private ChannelHandler http2Handler() {
+        return new Http2Installer(Http2FrameCodecBuilder.forServer().build());
+    }
+
+    private void configureHttp1(ChannelPipeline pipeline) {
+        configureHttpHandlers(pipeline.addLast(new HttpServerCodec()));
+    }
+
+    //Observer goes right after the codec, so it sees all responses, including ones sent by other handlers, and
+    //accounts size of the compressed response
+    private void configureHttpHandlers(ChannelPipeline pipeline) {
+        var observer = metrics == null && accessLog == null ? null : new ExchangeObserver(metrics, accessLog);
+
+        if (observer != null) {
+            pipeline.addLast(observer);
+        }
+
+        configuration.compression()
+            .whenPresent(compression -> pipeline.addLast(new ResponseCompressor(compression)));
+
+        var resolver = new RouteResolver(routingTable);
+
+        configureDecompression(configureIdleTimeouts(pipeline))
+            .addLast(new RequestAggregator(resolver, configuration.maxContentLen()))
+            .addLast(new ChunkedWriteHandler());
 
         configureCors(pipeline)
-            .addLast(new WebServerHandler(configuration, routingTable));
+            .addLast(new WebServerHandler(configuration, resolver, inFlight, observer, responseCache));
     }
 
-    private ChannelPipeline configureSsl(SocketChannel channel) {
-        var pipeline = channel.pipeline();
+    private ChannelPipeline configureIdleTimeouts(ChannelPipeline pipeline) {
+        if (hasIdleTimeouts()) {
+            pipeline.addLast(new IdleStateHandler(configuration.readIdleTimeout().toMillis(),
+                                                  configuration.writeIdleTimeout().toMillis(),
+                                                  configuration.idleTimeout().toMillis(),
+                                                  TimeUnit.MILLISECONDS));
+        }
 
-        configuration.sslContext()
-            .whenPresent(sslContext -> pipeline.addLast(sslContext.newHandler(channel.alloc())));
+        return pipeline;
+    }
+
+    private boolean hasIdleTimeouts() {
+        return configuration.readIdleTimeout().toMillis() > 0
+               || configuration.writeIdleTimeout().toMillis() > 0
+               || configuration.idleTimeout().toMillis() > 0;
+    }
+
+    //Decompressor goes before aggregator, so body is decompressed chunk by chunk and aggregated size is limited
+    private ChannelPipeline configureDecompression(ChannelPipeline pipeline) {
+        if (configuration.requestDecompression()) {
+            pipeline.addLast(new RequestDecompressor(configuration.maxContentLen()));
+        }
 
         return pipeline;
     }
@@ -45,4 +178,46 @@ private ChannelPipeline configureCors(ChannelPipeline pipeline) {
 
         return pipeline;
     }
+
+    //Switches connection to HTTP/2. Installer is added right after the handler which detected HTTP/2 (upgrade handler,
+    //prior knowledge handler or ALPN handler), HTTP/1 handlers which follow it are removed, since requests are handled
+    //by stream pipelines from now on.
+    private class Http2Installer extends ChannelHandlerAdapter {
+        private final Http2FrameCodec codec;
+
+        Http2Installer(Http2FrameCodec codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            var pipeline = ctx.pipeline();
+
+            while (pipeline.last() != this) {
+                pipeline.removeLast();
+            }
+
+            //Upgrade codec installs HTTP/2 codec by itself
+            if (pipeline.context(codec) == null) {
+                pipeline.addBefore(ctx.name(), null, codec);
+            }
+
+            if (hasIdleTimeouts()) {
+                pipeline.addBefore(pipeline.context(codec).name(), null,
+                                   new Http2IdleHandler(codec,
+                                                        configuration.readIdleTimeout().toMillis(),
+                                                        configuration.writeIdleTimeout().toMillis(),
+                                                        configuration.idleTimeout().toMillis()));
+            }
+
+            pipeline.replace(this, null, new Http2MultiplexHandler(new StreamInitializer()));
+        }
+    }
+
+    private class StreamInitializer extends ChannelInitializer<Http2StreamChannel> {
+        @Override
+        protected void initChannel(Http2StreamChannel channel) {
+            configureHttpHandlers(channel.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(true)));
+        }
+    }
 }
@@ -0,0 +1,95 @@
+package org.pfj.http.server.cache;
+
+/**
+ * Count-Min sketch with 4-bit counters, which estimates popularity of the keys within a time window. Each key is
+ * mapped to four counters located in single 64-bit word, estimation is the minimum of these counters. Once number
+ * of increments reaches sample size, all counters are halved, so popularity of the keys decays over time.
+ * <br/>
+ * Not thread safe, guarded by the cache lock.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAX_COUNTER = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(int expectedKeys) {
+        var capacity = Integer.highestOneBit(Math.max(16, Math.min(expectedKeys, 1 << 24)) - 1) << 1;
+
+        this.table = new long[capacity];
+        this.tableMask = capacity - 1;
+        this.sampleSize = 10 * capacity;
+    }
+
+    /**
+     * Estimated number of occurrences of the key, up to 15.
+     */
+    int frequency(int hashCode) {
+        var hash = spread(hashCode);
+        var start = (hash & 3) << 2;
+        var frequency = MAX_COUNTER;
+
+        for (int i = 0; i < 4; i++) {
+            var offset = (start + i) << 2;
+            var count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL);
+
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(int hashCode) {
+        var hash = spread(hashCode);
+        var start = (hash & 3) << 2;
+        var added = false;
+
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        var offset = counter << 2;
+        var mask = 0xfL << offset;
+
+        if ((table[index] & mask) == mask) {
+            return false;
+        }
+
+        table[index] += 1L << offset;
+        return true;
+    }
+
+    //Halves all counters, odd counters lose their remainder, so size is corrected accordingly
+    private void reset() {
+        var odd = 0;
+
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int hash, int i) {
+        var value = (hash + SEEDS[i]) * SEEDS[i];
+
+        value += value >>> 32;
+        return ((int) value) & tableMask;
+    }
+
+    private static int spread(int value) {
+        value = ((value >>> 16) ^ value) * 0x45d9f3b;
+        value = ((value >>> 16) ^ value) * 0x45d9f3b;
+        return (value >>> 16) ^ value;
+    }
+}
@@ -0,0 +1,419 @@
+package org.pfj.http.server.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.IllegalReferenceCountException;
+import org.pfj.http.server.config.ResponseCacheConfig;
+import org.pfj.http.server.routing.CacheOptions;
+import org.pfj.lang.Option;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of the serialized response bodies, stored in direct memory. Cache size is bounded by total size of the
+ * bodies, entries are evicted according to W-TinyLFU policy: new entries are placed into small LRU window, entries
+ * leaving the window compete with the least recently used entry of the main area and are admitted only if they are
+ * more popular. Popularity is estimated by {@link FrequencySketch}. Main area is segmented LRU, entries accessed
+ * while on probation are promoted into protected segment, so single scan can't flush popular entries. Each entry has
+ * TTL, expired entries are removed on access or preferred as eviction victims.
+ * <br/>
+ * Lookups are lock-free, readers get retained duplicate of the cached buffer, so entry may be evicted while response
+ * is being written. Accesses are recorded only if policy lock is not contended, so under heavy load part of the hits
+ * does not affect eviction order.
+ */
+public final class ResponseCache {
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+    private static final int EXPECTED_ENTRY_SIZE = 4096;
+
+    private final int maxEntryBytes;
+    private final long maxBytes;
+    private final long maxWindowBytes;
+    private final long maxProtectedBytes;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessOrder window = new AccessOrder();
+    private final AccessOrder probation = new AccessOrder();
+    private final AccessOrder protectedOrder = new AccessOrder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile long bytes;
+
+    private ResponseCache(ResponseCacheConfig config) {
+        this.maxBytes = config.maxBytes();
+        this.maxEntryBytes = config.maxEntryBytes();
+        this.maxWindowBytes = maxBytes * WINDOW_PERCENT / 100;
+        this.maxProtectedBytes = (maxBytes - maxWindowBytes) * PROTECTED_PERCENT / 100;
+        //Sketch should have a counter per cached entry, number of entries is estimated from their typical size
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE,
+                                                         maxBytes / Math.min(EXPECTED_ENTRY_SIZE, maxEntryBytes)));
+    }
+
+    public static ResponseCache create(ResponseCacheConfig config) {
+        return new ResponseCache(config);
+    }
+
+    /**
+     * Build cache key from the normalized request path and values of the query parameters and headers selected by
+     * route options. Key starts with the path, so all responses for some path can be invalidated by path prefix.
+     */
+    public static String key(CacheOptions options, String path, HttpRequest request) {
+        if (options.queryParams().isEmpty() && options.headers().isEmpty()) {
+            return path;
+        }
+
+        var key = new StringBuilder(path.length() + 64).append(path);
+
+        if (!options.queryParams().isEmpty()) {
+            var parameters = new QueryStringDecoder(request.uri()).parameters();
+            var separator = '?';
+
+            for (var name : options.queryParams()) {
+                var values = parameters.get(name);
+
+                if (values == null) {
+                    continue;
+                }
+
+                for (var value : values) {
+                    key.append(separator).append(encode(name)).append('=').append(encode(value));
+                    separator = '&';
+                }
+            }
+        }
+
+        for (var name : options.headers()) {
+            for (var value : request.headers().getAll(name)) {
+                key.append('#').append(name).append('=').append(encode(value));
+            }
+        }
+
+        return key.toString();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Find cached response. Returned buffer is a duplicate of the cached one and must be released by caller.
+     */
+    public Option<ByteBuf> get(String key) {
+        return get(key, System.nanoTime());
+    }
+
+    Option<ByteBuf> get(String key, long now) {
+        var entry = entries.get(key);
+
+        if (entry == null) {
+            recordMiss(key);
+            return Option.empty();
+        }
+
+        if (entry.expired(now)) {
+            lock.lock();
+            try {
+                if (remove(entry)) {
+                    evictions.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+            recordMiss(key);
+            return Option.empty();
+        }
+
+        ByteBuf buffer;
+
+        try {
+            buffer = entry.buffer.retainedDuplicate();
+        } catch (IllegalReferenceCountException e) {
+            //Entry is evicted concurrently
+            recordMiss(key);
+            return Option.empty();
+        }
+
+        hits.increment();
+
+        if (lock.tryLock()) {
+            try {
+                onAccess(entry);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        return Option.present(buffer);
+    }
+
+    /**
+     * Store response in the cache. Content is copied into direct buffer and released. Returned buffer has the same
+     * content and must be released by caller. Content larger than configured entry size is returned as is.
+     */
+    public ByteBuf put(String key, ByteBuf content, Duration ttl) {
+        return put(key, content, ttl, System.nanoTime());
+    }
+
+    ByteBuf put(String key, ByteBuf content, Duration ttl, long now) {
+        var size = content.readableBytes();
+
+        if (size > maxEntryBytes) {
+            return content;
+        }
+
+        var buffer = Unpooled.directBuffer(size, size).writeBytes(content, content.readerIndex(), size);
+        var entry = new Entry(key, buffer, now + ttl.toNanos());
+        var response = buffer.retainedDuplicate();
+
+        content.release();
+
+        lock.lock();
+        try {
+            var previous = entries.put(key, entry);
+
+            if (previous != null) {
+                unlink(previous);
+            }
+
+            sketch.increment(entry.hash);
+            window.addLast(entry);
+            entry.order = window;
+            window.bytes += size;
+            bytes += size;
+
+            evict(now);
+        } finally {
+            lock.unlock();
+        }
+
+        return response;
+    }
+
+    /**
+     * Remove all entries whose keys start with provided prefix, for example <code>/users/</code>.
+     *
+     * @return number of removed entries.
+     */
+    public int invalidate(String prefix) {
+        var removed = 0;
+
+        lock.lock();
+        try {
+            for (var entry : entries.values()) {
+                if (entry.key.startsWith(prefix) && remove(entry)) {
+                    removed++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return removed;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        invalidate("");
+    }
+
+    /**
+     * Snapshot of the cache counters.
+     */
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), bytes);
+    }
+
+    /**
+     * Cache counters.
+     *
+     * @param hits      Number of lookups which found valid entry.
+     * @param misses    Number of lookups which found no entry or expired one.
+     * @param evictions Number of entries removed because of size limit or expiration.
+     * @param entries   Number of cached entries.
+     * @param bytes     Total size of the cached entries.
+     */
+    public record CacheStats(long hits, long misses, long evictions, long entries, long bytes) {
+    }
+
+    //Misses are counted by sketch as well, so responses which are requested often get admitted once cached
+    private void recordMiss(String key) {
+        misses.increment();
+
+        if (lock.tryLock()) {
+            try {
+                sketch.increment(key.hashCode());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void onAccess(Entry entry) {
+        if (entry.order == null) {
+            return;
+        }
+
+        sketch.increment(entry.hash);
+
+        if (entry.order == probation) {
+            probation.remove(entry);
+            probation.bytes -= entry.weight;
+            protectedOrder.addLast(entry);
+            protectedOrder.bytes += entry.weight;
+            entry.order = protectedOrder;
+
+            //Protected segment overflow goes back to probation
+            while (protectedOrder.bytes > maxProtectedBytes) {
+                var demoted = protectedOrder.pollFirst();
+
+                protectedOrder.bytes -= demoted.weight;
+                probation.addLast(demoted);
+                probation.bytes += demoted.weight;
+                demoted.order = probation;
+            }
+        } else {
+            entry.order.moveToLast(entry);
+        }
+    }
+
+    private void evict(long now) {
+        //Entries leaving the window become candidates at the tail of probation
+        while (window.bytes > maxWindowBytes) {
+            var candidate = window.pollFirst();
+
+            window.bytes -= candidate.weight;
+            probation.addLast(candidate);
+            probation.bytes += candidate.weight;
+            candidate.order = probation;
+        }
+
+        while (bytes > maxBytes) {
+            var victim = probation.peekFirst();
+            var candidate = probation.peekLast();
+
+            if (victim == null) {
+                victim = protectedOrder.peekFirst() != null ? protectedOrder.peekFirst() : window.peekFirst();
+            } else if (victim != candidate && !victim.expired(now)
+                       && (candidate.expired(now) || sketch.frequency(candidate.hash) <= sketch.frequency(victim.hash))) {
+                victim = candidate;
+            }
+
+            remove(victim);
+            evictions.increment();
+        }
+    }
+
+    private boolean remove(Entry entry) {
+        if (!entries.remove(entry.key, entry)) {
+            return false;
+        }
+
+        unlink(entry);
+        return true;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.order == null) {
+            return;
+        }
+
+        entry.order.remove(entry);
+        entry.order.bytes -= entry.weight;
+        entry.order = null;
+        bytes -= entry.weight;
+        entry.buffer.release();
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final int hash;
+        private final ByteBuf buffer;
+        private final int weight;
+        private final long expiresAt;
+        //Guarded by lock
+        private AccessOrder order;
+        private Entry previous;
+        private Entry next;
+
+        Entry(String key, ByteBuf buffer, long expiresAt) {
+            this.key = key;
+            this.hash = key.hashCode();
+            this.buffer = buffer;
+            this.weight = buffer.readableBytes();
+            this.expiresAt = expiresAt;
+        }
+
+        boolean expired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    //Intrusive doubly linked list, head is the least recently used entry
+    private static final class AccessOrder {
+        private Entry head;
+        private Entry tail;
+        private long bytes;
+
+        Entry peekFirst() {
+            return head;
+        }
+
+        Entry peekLast() {
+            return tail;
+        }
+
+        Entry pollFirst() {
+            var entry = head;
+
+            remove(entry);
+            return entry;
+        }
+
+        void addLast(Entry entry) {
+            entry.previous = tail;
+            entry.next = null;
+
+            if (tail == null) {
+                head = entry;
+            } else {
+                tail.next = entry;
+            }
+            tail = entry;
+        }
+
+        void moveToLast(Entry entry) {
+            if (entry != tail) {
+                remove(entry);
+                addLast(entry);
+            }
+        }
+
+        void remove(Entry entry) {
+            if (entry.previous == null) {
+                head = entry.next;
+            } else {
+                entry.previous.next = entry.next;
+            }
+
+            if (entry.next == null) {
+                tail = entry.previous;
+            } else {
+                entry.next.previous = entry.previous;
+            }
+
+            entry.previous = null;
+            entry.next = null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.pfj.http.server.config;
+
+/**
+ * Settings of the access log.
+ *
+ * @param bufferSize Size of the ring buffer which holds entries not yet written to the log, must be a power of two.
+ *                   Entries are dropped if buffer is full.
+ * @param sampleRate Fraction of requests written to the log, in range (0, 1]. Responses with status 5xx are always
+ *                   written.
+ * @param loggerName Name of the logger used to write entries.
+ */
+public record AccessLogConfig(int bufferSize, double sampleRate, String loggerName) {
+    private static final AccessLogConfig DEFAULTS = new AccessLogConfig(8192, 1.0, "access");
+
+    public AccessLogConfig {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Buffer size must be a power of two, but was " + bufferSize);
+        }
+
+        if (sampleRate <= 0.0 || sampleRate > 1.0) {
+            throw new IllegalArgumentException("Sample rate must be in range (0, 1], but was " + sampleRate);
+        }
+    }
+
+    public static AccessLogConfig defaults() {
+        return DEFAULTS;
+    }
+
+    public AccessLogConfig withBufferSize(int bufferSize) {
+        return new AccessLogConfig(bufferSize, sampleRate, loggerName);
+    }
+
+    public AccessLogConfig withSampleRate(double sampleRate) {
+        return new AccessLogConfig(bufferSize, sampleRate, loggerName);
+    }
+
+    public AccessLogConfig withLoggerName(String loggerName) {
+        return new AccessLogConfig(bufferSize, sampleRate, loggerName);
+    }
+}
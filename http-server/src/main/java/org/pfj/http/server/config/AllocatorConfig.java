@@ -0,0 +1,39 @@
+package org.pfj.http.server.config;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * Settings of the pooled buffer allocator used by server channels, request parsing and response serialization.
+ *
+ * @param preferDirect      Allocate direct buffers unless heap buffer is requested explicitly.
+ * @param heapArenas        Number of heap arenas.
+ * @param directArenas      Number of direct arenas.
+ * @param threadLocalCaches Keep per-thread caches of recently released buffers, including threads which are not event
+ *                          loop threads (i.e. blocking executor threads).
+ */
+public record AllocatorConfig(boolean preferDirect, int heapArenas, int directArenas, boolean threadLocalCaches) {
+    private static final AllocatorConfig DEFAULTS = new AllocatorConfig(PooledByteBufAllocator.defaultPreferDirect(),
+                                                                         PooledByteBufAllocator.defaultNumHeapArena(),
+                                                                         PooledByteBufAllocator.defaultNumDirectArena(),
+                                                                         PooledByteBufAllocator.defaultUseCacheForAllThreads());
+
+    public static AllocatorConfig defaults() {
+        return DEFAULTS;
+    }
+
+    public ByteBufAllocator allocator() {
+        if (equals(DEFAULTS)) {
+            return PooledByteBufAllocator.DEFAULT;
+        }
+
+        return new PooledByteBufAllocator(preferDirect,
+                                          heapArenas,
+                                          directArenas,
+                                          PooledByteBufAllocator.defaultPageSize(),
+                                          PooledByteBufAllocator.defaultMaxOrder(),
+                                          threadLocalCaches ? PooledByteBufAllocator.defaultSmallCacheSize() : 0,
+                                          threadLocalCaches ? PooledByteBufAllocator.defaultNormalCacheSize() : 0,
+                                          threadLocalCaches);
+    }
+}
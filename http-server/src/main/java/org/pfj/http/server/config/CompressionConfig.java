@@ -0,0 +1,83 @@
+package org.pfj.http.server.config;
+
+import org.pfj.lang.Option;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.pfj.lang.Option.option;
+
+/**
+ * Settings of the response compression. Encoding is negotiated via <code>Accept-Encoding</code> header: gzip and
+ * deflate are always supported, brotli and zstd are used when respective native libraries are present in classpath.
+ *
+ * @param level      Compression level (1-9) for gzip and deflate, can be overridden per route.
+ * @param thresholds Minimal size of the response body which is compressed, per MIME type. Types may be specified
+ *                   either exactly (<code>application/json</code>) or as wildcard (<code>text/*</code>). Responses of
+ *                   types which are not listed are not compressed. Threshold is not applied to streaming responses,
+ *                   since their size is not known in advance.
+ */
+public record CompressionConfig(int level, Map<String, Integer> thresholds) {
+    private static final int DEFAULT_THRESHOLD = 1024;
+    private static final CompressionConfig DEFAULTS = new CompressionConfig(6, Map.of(
+        "text/*", DEFAULT_THRESHOLD,
+        "application/json", DEFAULT_THRESHOLD,
+        "application/x-ndjson", 0,
+        "application/javascript", DEFAULT_THRESHOLD,
+        "application/xml", DEFAULT_THRESHOLD,
+        "image/svg+xml", DEFAULT_THRESHOLD
+    ));
+
+    public CompressionConfig {
+        if (level < 1 || level > 9) {
+            throw new IllegalArgumentException("Compression level must be in range 1..9, but was " + level);
+        }
+
+        thresholds = Map.copyOf(thresholds);
+    }
+
+    public static CompressionConfig defaults() {
+        return DEFAULTS;
+    }
+
+    public CompressionConfig withLevel(int level) {
+        return new CompressionConfig(level, thresholds);
+    }
+
+    /**
+     * Compress responses of provided MIME type if their size is at least <code>threshold</code> bytes.
+     */
+    public CompressionConfig withThreshold(String mimeType, int threshold) {
+        var updated = new HashMap<>(thresholds);
+        updated.put(mimeType.toLowerCase(Locale.ROOT), threshold);
+
+        return new CompressionConfig(level, updated);
+    }
+
+    /**
+     * Do not compress responses of provided MIME type.
+     */
+    public CompressionConfig without(String mimeType) {
+        var updated = new HashMap<>(thresholds);
+        updated.remove(mimeType.toLowerCase(Locale.ROOT));
+
+        return new CompressionConfig(level, updated);
+    }
+
+    /**
+     * Find threshold for the value of <code>Content-Type</code> header.
+     */
+    public Option<Integer> threshold(String contentType) {
+        var end = contentType.indexOf(';');
+        var mimeType = (end < 0 ? contentType : contentType.substring(0, end)).trim().toLowerCase(Locale.ROOT);
+        var threshold = thresholds.get(mimeType);
+        var slash = mimeType.indexOf('/');
+
+        if (threshold == null && slash > 0) {
+            threshold = thresholds.get(mimeType.substring(0, slash + 1) + "*");
+        }
+
+        return option(threshold);
+    }
+}
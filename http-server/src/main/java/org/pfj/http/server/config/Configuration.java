@@ -1,13 +1,27 @@
 package org.pfj.http.server.config;
 
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollMode;
 import io.netty.handler.codec.http.cors.CorsConfig;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.ssl.SslContext;
+import io.netty.util.NetUtil;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.pfj.http.server.config.serialization.DefaultSerializer;
 import org.pfj.http.server.config.serialization.Serializer;
 import org.pfj.http.server.error.CauseMapper;
+import org.pfj.http.server.limit.ConcurrencyLimiter;
 import org.pfj.lang.Option;
 
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 import static org.pfj.lang.Option.option;
 
 public class Configuration {
@@ -17,10 +31,35 @@ public class Configuration {
     private final int sendBufferSize;
     private final int receiveBufferSize;
     private final int maxContentLen;
-    private final LogLevel logLevel;
+    private final Option<LogLevel> logLevel;
     private final boolean enableNative;
+    private final boolean enableIoUring;
+    private final boolean enableHttp2;
     private final Option<SslContext> sslContext;
     private final Option<CorsConfig> corsConfig;
+    private final Option<Executor> blockingExecutor;
+    private final int workerThreads;
+    private final int listeners;
+    private final ThreadFactory threadFactory;
+    private final boolean tcpNoDelay;
+    private final int backlog;
+    private final EpollMode epollMode;
+    private final WriteBufferWaterMark writeBufferWaterMark;
+    private final ByteBufAllocator allocator;
+    private final RecvByteBufAllocator receiveAllocator;
+    private final Option<ResourceLeakDetector.Level> leakDetection;
+    private final Duration drainTimeout;
+    private final Duration idleTimeout;
+    private final Duration readIdleTimeout;
+    private final Duration writeIdleTimeout;
+    private final Duration requestTimeout;
+    private final ConcurrencyLimiter limiter;
+    private final boolean enableMetrics;
+    private final Option<String> metricsPath;
+    private final Option<AccessLogConfig> accessLog;
+    private final Option<CompressionConfig> compression;
+    private final boolean requestDecompression;
+    private final Option<ResponseCacheConfig> responseCache;
 
     private Configuration(Builder builder) {
         this.port = builder.port;
@@ -29,10 +68,35 @@ private Configuration(Builder builder) {
         this.sendBufferSize = builder.sendBufferSize;
         this.receiveBufferSize = builder.receiveBufferSize;
         this.maxContentLen = builder.maxContentLen;
-        this.logLevel = builder.logLevel;
+        this.logLevel = option(builder.logLevel);
         this.enableNative = builder.enableNative;
+        this.enableIoUring = builder.enableIoUring;
+        this.enableHttp2 = builder.enableHttp2;
         this.sslContext = option(builder.sslContext);
         this.corsConfig = option(builder.corsConfig);
+        this.blockingExecutor = option(builder.blockingExecutor);
+        this.workerThreads = builder.workerThreads;
+        this.listeners = builder.listeners;
+        this.threadFactory = option(builder.threadFactory).or(() -> new DefaultThreadFactory("http-worker"));
+        this.tcpNoDelay = builder.tcpNoDelay;
+        this.backlog = builder.backlog;
+        this.epollMode = builder.epollMode;
+        this.writeBufferWaterMark = builder.writeBufferWaterMark;
+        this.allocator = builder.allocatorConfig.allocator();
+        this.receiveAllocator = builder.receiveAllocator;
+        this.leakDetection = option(builder.leakDetection);
+        this.drainTimeout = builder.drainTimeout;
+        this.idleTimeout = builder.idleTimeout;
+        this.readIdleTimeout = builder.readIdleTimeout;
+        this.writeIdleTimeout = builder.writeIdleTimeout;
+        this.requestTimeout = builder.requestTimeout;
+        this.limiter = builder.limiter;
+        this.enableMetrics = builder.enableMetrics;
+        this.metricsPath = option(builder.metricsPath);
+        this.accessLog = option(builder.accessLog);
+        this.compression = option(builder.compression);
+        this.requestDecompression = builder.requestDecompression;
+        this.responseCache = option(builder.responseCache);
     }
 
     public static Configuration allDefaults() {
@@ -67,7 +131,18 @@ public int maxContentLen() {
         return maxContentLen;
     }
 
+    /**
+     * Level of the listener events logging. Logging is disabled unless level is configured, in which case
+     * {@link LogLevel#DEBUG} is returned, as it was default level before.
+     */
     public LogLevel logLevel() {
+        return logLevel.or(LogLevel.DEBUG);
+    }
+
+    /**
+     * Level of the listener events logging, if it is enabled with {@link Builder#withLogLevel(LogLevel)}.
+     */
+    public Option<LogLevel> listenerLogLevel() {
         return logLevel;
     }
 
@@ -75,6 +150,14 @@ public boolean enableNative() {
         return enableNative;
     }
 
+    public boolean enableIoUring() {
+        return enableIoUring;
+    }
+
+    public boolean enableHttp2() {
+        return enableHttp2;
+    }
+
     public Option<SslContext> sslContext() {
         return sslContext;
     }
@@ -83,20 +166,158 @@ public Option<CorsConfig> corsConfig() {
         return corsConfig;
     }
 
+    /**
+     * Executor for blocking routes. If none is configured, default executor shared by all configurations is used.
+     */
+    public Executor blockingExecutor() {
+        return blockingExecutor.or(DefaultBlockingExecutor::instance);
+    }
+
+    public int workerThreads() {
+        return workerThreads;
+    }
+
+    public int listeners() {
+        return listeners;
+    }
+
+    public ThreadFactory threadFactory() {
+        return threadFactory;
+    }
+
+    public boolean tcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public int backlog() {
+        return backlog;
+    }
+
+    public EpollMode epollMode() {
+        return epollMode;
+    }
+
+    public WriteBufferWaterMark writeBufferWaterMark() {
+        return writeBufferWaterMark;
+    }
+
+    public ByteBufAllocator allocator() {
+        return allocator;
+    }
+
+    public RecvByteBufAllocator receiveAllocator() {
+        return receiveAllocator;
+    }
+
+    public Option<ResourceLeakDetector.Level> leakDetection() {
+        return leakDetection;
+    }
+
+    public Duration drainTimeout() {
+        return drainTimeout;
+    }
+
+    public Duration idleTimeout() {
+        return idleTimeout;
+    }
+
+    public Duration readIdleTimeout() {
+        return readIdleTimeout;
+    }
+
+    public Duration writeIdleTimeout() {
+        return writeIdleTimeout;
+    }
+
+    public Duration requestTimeout() {
+        return requestTimeout;
+    }
+
+    public ConcurrencyLimiter limiter() {
+        return limiter;
+    }
+
+    public boolean metricsEnabled() {
+        return enableMetrics || metricsPath.isPresent();
+    }
+
+    public Option<String> metricsPath() {
+        return metricsPath;
+    }
+
+    public Option<AccessLogConfig> accessLog() {
+        return accessLog;
+    }
+
+    public Option<CompressionConfig> compression() {
+        return compression;
+    }
+
+    public boolean requestDecompression() {
+        return requestDecompression;
+    }
+
+    public Option<ResponseCacheConfig> responseCache() {
+        return responseCache;
+    }
+
+    //Created once on first use. Virtual threads are used when runtime supports them (Java 21+), otherwise cached pool
+    //of daemon threads, idle threads are terminated by the pool, so executor does not need to be shut down.
+    private static final class DefaultBlockingExecutor {
+        private static final Executor INSTANCE = create();
+
+        static Executor instance() {
+            return INSTANCE;
+        }
+
+        private static Executor create() {
+            try {
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newCachedThreadPool(new DefaultThreadFactory("blocking-handler", true));
+            }
+        }
+    }
+
     public static final class Builder {
         private static final int KB = 1024;
         private static final int MB = KB * KB;
 
         private int port = 8000;
         private boolean enableNative = true;
+        private boolean enableIoUring = false;
+        private boolean enableHttp2 = false;
         private int sendBufferSize = MB;
         private int receiveBufferSize = 32 * KB;
         private int maxContentLen = 10 * MB;
         private Serializer serializer = DefaultSerializer.withDefault();
         private CauseMapper causeMapper = CauseMapper::defaultConverter;
-        private LogLevel logLevel = LogLevel.DEBUG;
+        private LogLevel logLevel = null;
         private SslContext sslContext = null;
         private CorsConfig corsConfig = null;
+        private Executor blockingExecutor = null;
+        private int workerThreads = 0;
+        private int listeners = 1;
+        private ThreadFactory threadFactory = null;
+        private boolean tcpNoDelay = true;
+        private int backlog = NetUtil.SOMAXCONN;
+        private EpollMode epollMode = EpollMode.EDGE_TRIGGERED;
+        private WriteBufferWaterMark writeBufferWaterMark = WriteBufferWaterMark.DEFAULT;
+        private AllocatorConfig allocatorConfig = AllocatorConfig.defaults();
+        private RecvByteBufAllocator receiveAllocator = new AdaptiveRecvByteBufAllocator();
+        private ResourceLeakDetector.Level leakDetection = null;
+        private Duration drainTimeout = Duration.ofSeconds(30);
+        private Duration idleTimeout = Duration.ofSeconds(60);
+        private Duration readIdleTimeout = Duration.ZERO;
+        private Duration writeIdleTimeout = Duration.ZERO;
+        private Duration requestTimeout = Duration.ZERO;
+        private ConcurrencyLimiter limiter = ConcurrencyLimiter.unlimited();
+        private boolean enableMetrics = false;
+        private String metricsPath = null;
+        private AccessLogConfig accessLog = null;
+        private CompressionConfig compression = null;
+        private boolean requestDecompression = false;
+        private ResponseCacheConfig responseCache = null;
 
         private Builder() {
         }
@@ -126,6 +347,18 @@ public Builder withReceiveBufferSize(int size) {
             return this;
         }
 
+        /**
+         * Maximal size of the aggregated (and, if enabled, decompressed) request body.
+         */
+        public Builder withMaxContentLen(int maxContentLen) {
+            this.maxContentLen = maxContentLen;
+            return this;
+        }
+
+        /**
+         * Log events of the listening channels at provided level. Disabled by default, use
+         * {@link #withAccessLog(AccessLogConfig)} to log requests.
+         */
         public Builder withLogLevel(LogLevel level) {
             this.logLevel = level;
             return this;
@@ -136,6 +369,25 @@ public Builder withNativeTransport(boolean enable) {
             return this;
         }
 
+        /**
+         * Use io_uring transport when native transport is enabled and kernel supports io_uring. Falls back to epoll
+         * otherwise.
+         */
+        public Builder withIoUring(boolean enable) {
+            this.enableIoUring = enable;
+            return this;
+        }
+
+        /**
+         * Enable HTTP/2. With SSL protocol is negotiated via ALPN (SSL context must be configured to advertise
+         * <code>h2</code> and <code>http/1.1</code>), plaintext connections accept <code>h2c</code> upgrade and prior
+         * knowledge connections. HTTP/1.1 clients are served as before.
+         */
+        public Builder withHttp2(boolean enable) {
+            this.enableHttp2 = enable;
+            return this;
+        }
+
         public Builder withSsl(SslContext context) {
             this.sslContext = context;
             return this;
@@ -146,6 +398,192 @@ public Builder withCors(CorsConfig corsConfig) {
             return this;
         }
 
+        /**
+         * Executor for handlers of the routes marked as blocking. Response is written on the event loop once handler
+         * completes.
+         */
+        public Builder withBlockingExecutor(Executor executor) {
+            this.blockingExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Number of worker event loop threads. Zero (default) means Netty default, i.e. twice the number of CPU cores.
+         */
+        public Builder withWorkerThreads(int threads) {
+            this.workerThreads = threads;
+            return this;
+        }
+
+        /**
+         * Number of server channels bound to the port with <code>SO_REUSEPORT</code>, each with its own acceptor thread,
+         * so kernel distributes incoming connections between them. Supported only by epoll and io_uring transports, others
+         * always use single listener.
+         */
+        public Builder withListeners(int listeners) {
+            this.listeners = listeners;
+            return this;
+        }
+
+        /**
+         * Factory for worker event loop threads. Allows custom thread naming or pinning threads to CPU cores.
+         */
+        public Builder withThreadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        public Builder withTcpNoDelay(boolean enable) {
+            this.tcpNoDelay = enable;
+            return this;
+        }
+
+        public Builder withBacklog(int backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * Epoll triggering mode, ignored by other transports.
+         */
+        public Builder withEpollMode(EpollMode epollMode) {
+            this.epollMode = epollMode;
+            return this;
+        }
+
+        public Builder withWriteBufferWaterMark(WriteBufferWaterMark waterMark) {
+            this.writeBufferWaterMark = waterMark;
+            return this;
+        }
+
+        public Builder withAllocator(AllocatorConfig allocatorConfig) {
+            this.allocatorConfig = allocatorConfig;
+            return this;
+        }
+
+        /**
+         * Range of the buffer sizes used to read data from the connection. Size is adjusted to the amount of data
+         * received by previous reads.
+         */
+        public Builder withReceiveAllocator(int minimum, int initial, int maximum) {
+            this.receiveAllocator = new AdaptiveRecvByteBufAllocator(minimum, initial, maximum);
+            return this;
+        }
+
+        /**
+         * Buffer leak detection level. Note that level is global for the whole JVM. Level is not changed unless set
+         * explicitly, {@link ResourceLeakDetector.Level#PARANOID} is intended for tests.
+         */
+        public Builder withLeakDetection(ResourceLeakDetector.Level level) {
+            this.leakDetection = level;
+            return this;
+        }
+
+        /**
+         * Maximal time to wait for in-flight requests to be responded when server is stopped.
+         */
+        public Builder withDrainTimeout(Duration timeout) {
+            this.drainTimeout = timeout;
+            return this;
+        }
+
+        /**
+         * Close connection if there were no reads and writes for the specified time. Connections with requests which
+         * are not yet responded are not closed. HTTP/2 connection is closed only when it has no active streams. Zero
+         * disables timeout.
+         */
+        public Builder withIdleTimeout(Duration timeout) {
+            this.idleTimeout = timeout;
+            return this;
+        }
+
+        /**
+         * Close connection if nothing was read from it for the specified time (and there are no requests waiting for
+         * response). Zero (default) disables timeout.
+         */
+        public Builder withReadIdleTimeout(Duration timeout) {
+            this.readIdleTimeout = timeout;
+            return this;
+        }
+
+        /**
+         * Close connection if nothing was written to it for the specified time and either there are no requests
+         * waiting for response or client does not read the response. Zero (default) disables timeout.
+         */
+        public Builder withWriteIdleTimeout(Duration timeout) {
+            this.writeIdleTimeout = timeout;
+            return this;
+        }
+
+        /**
+         * Default request deadline, can be overridden for individual routes. Zero (default) means no deadline.
+         */
+        public Builder withRequestTimeout(Duration timeout) {
+            this.requestTimeout = timeout;
+            return this;
+        }
+
+        /**
+         * Limit number of concurrently processed requests for the whole server, excess requests are rejected with
+         * <code>503 Service Unavailable</code>.
+         */
+        public Builder withConcurrencyLimit(ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+            return this;
+        }
+
+        /**
+         * Record per-route request counters and latencies, see {@link org.pfj.http.server.WebServer#metrics()}.
+         */
+        public Builder withMetrics(boolean enable) {
+            this.enableMetrics = enable;
+            return this;
+        }
+
+        /**
+         * Expose metrics in Prometheus text format at provided path. Implies {@link #withMetrics(boolean)}.
+         */
+        public Builder withMetricsPath(String path) {
+            this.metricsPath = path;
+            return this;
+        }
+
+        /**
+         * Write access log entry (remote address, method, URI, status, response size, latency and route) for each
+         * sampled request. Entries are written asynchronously.
+         */
+        public Builder withAccessLog(AccessLogConfig config) {
+            this.accessLog = config;
+            return this;
+        }
+
+        /**
+         * Compress responses if client accepts compressed content. Disabled by default.
+         */
+        public Builder withCompression(CompressionConfig config) {
+            this.compression = config;
+            return this;
+        }
+
+        /**
+         * Transparently decompress request bodies sent with <code>Content-Encoding</code> (gzip, deflate, brotli if
+         * available). Decompressed body is limited by {@link #withMaxContentLen(int)}, requests with other encodings
+         * are rejected with <code>415 Unsupported Media Type</code>. Disabled by default.
+         */
+        public Builder withRequestDecompression(boolean enable) {
+            this.requestDecompression = enable;
+            return this;
+        }
+
+        /**
+         * Cache responses of the routes configured with {@link org.pfj.http.server.routing.CacheOptions}. Disabled by
+         * default.
+         */
+        public Builder withResponseCache(ResponseCacheConfig config) {
+            this.responseCache = config;
+            return this;
+        }
+
         public Configuration build() {
             return new Configuration(this);
         }
@@ -0,0 +1,34 @@
+package org.pfj.http.server.config;
+
+/**
+ * Settings of the response cache. Cached responses are stored in direct memory, which is not accounted by the heap
+ * size, so cache capacity should be taken into account when direct memory limit is configured.
+ *
+ * @param maxBytes      Total size of the cached response bodies. Once exceeded, least valuable entries are evicted.
+ * @param maxEntryBytes Maximal size of the single cached response body. Larger responses are not cached.
+ */
+public record ResponseCacheConfig(long maxBytes, int maxEntryBytes) {
+    private static final ResponseCacheConfig DEFAULTS = new ResponseCacheConfig(64L * 1024 * 1024, 1024 * 1024);
+
+    public ResponseCacheConfig {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive, but was " + maxBytes);
+        }
+
+        if (maxEntryBytes <= 0 || maxEntryBytes > maxBytes) {
+            throw new IllegalArgumentException("Entry size must be in range 1.." + maxBytes + ", but was " + maxEntryBytes);
+        }
+    }
+
+    public static ResponseCacheConfig defaults() {
+        return DEFAULTS;
+    }
+
+    public ResponseCacheConfig withMaxBytes(long maxBytes) {
+        return new ResponseCacheConfig(maxBytes, Math.min(maxEntryBytes, (int) Math.min(maxBytes, Integer.MAX_VALUE)));
+    }
+
+    public ResponseCacheConfig withMaxEntryBytes(int maxEntryBytes) {
+        return new ResponseCacheConfig(maxBytes, maxEntryBytes);
+    }
+}
@@ -1,16 +1,27 @@
 package org.pfj.http.server.config.serialization;
 
+import io.netty.util.AsciiString;
+
 public enum ContentType {
     TEXT_PLAIN("text/plain; charset=UTF-8"),
     APPLICATION_JSON("application/json; charset=UTF-8");
 
-    private String text;
+    private final String text;
+    private final AsciiString headerValue;
 
     ContentType(String text) {
         this.text = text;
+        this.headerValue = AsciiString.cached(text);
     }
 
     public String text() {
         return text;
     }
+
+    /**
+     * Pre-encoded value for the <code>Content-Type</code> header.
+     */
+    public AsciiString headerValue() {
+        return headerValue;
+    }
 }
@@ -3,15 +3,27 @@
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import org.pfj.http.server.error.WebError;
 import org.pfj.lang.Result;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+
 import static io.netty.buffer.Unpooled.wrappedBuffer;
 import static org.pfj.http.server.error.CompoundCause.fromThrowable;
 import static org.pfj.lang.Result.lift;
 
 public final class DefaultSerializer implements Serializer {
     private final ObjectMapper objectMapper;
+    private final ClassValue<SizeHint> sizeHints = new ClassValue<>() {
+        @Override
+        protected SizeHint computeValue(Class<?> type) {
+            return new SizeHint();
+        }
+    };
 
     private DefaultSerializer(ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
@@ -33,11 +45,64 @@ public Result<ByteBuf> serialize(Object success) {
         );
     }
 
+    /**
+     * Serialize value directly into the buffer obtained from provided allocator (usually pooled direct memory). Initial
+     * buffer size is learned from the previously serialized values of the same type.
+     */
+    @Override
+    public Result<ByteBuf> serialize(Object success, ByteBufAllocator allocator) {
+        var sizeHint = sizeHints.get(success == null ? Void.class : success.getClass());
+        var buffer = allocator.ioBuffer(sizeHint.size());
+
+        return lift(
+            e -> {
+                buffer.release();
+                return fromThrowable(WebError.UNPROCESSABLE_ENTITY, e);
+            },
+            () -> {
+                //ByteBufOutputStream implements both OutputStream and DataOutput, the former is faster
+                OutputStream stream = new ByteBufOutputStream(buffer);
+
+                objectMapper.writeValue(stream, success);
+                sizeHint.record(buffer.readableBytes());
+                return buffer;
+            }
+        );
+    }
+
+    /**
+     * Deserialize value from provided buffer without copying its content. Heap buffers are parsed directly from the
+     * backing array, direct and composite buffers are streamed. Reader index of the buffer remains unchanged.
+     */
     @Override
     public <T> Result<T> deserialize(ByteBuf entity, TypeReference<T> literal) {
         return lift(
             e -> fromThrowable(WebError.UNPROCESSABLE_ENTITY, e),
-            () -> objectMapper.readValue(entity.array(), entity.arrayOffset(), entity.readableBytes(), literal)
+            () -> entity.hasArray()
+                ? objectMapper.readValue(entity.array(), entity.arrayOffset() + entity.readerIndex(), entity.readableBytes(), literal)
+                : objectMapper.readValue((InputStream) new ByteBufInputStream(entity.duplicate()), literal)
         );
     }
+
+    /**
+     * Expected size of serialized value. Grows immediately and shrinks slowly, so buffers rarely need resizing.
+     * Updates are racy, but any observed value is a valid hint.
+     */
+    private static final class SizeHint {
+        private static final int MIN_SIZE = 256;
+
+        private int size = MIN_SIZE;
+
+        int size() {
+            return size;
+        }
+
+        void record(int actual) {
+            var current = size;
+
+            size = actual > current
+                ? actual
+                : Math.max(MIN_SIZE, current - ((current - actual) >> 4));
+        }
+    }
 }
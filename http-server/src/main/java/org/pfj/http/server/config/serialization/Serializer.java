@@ -2,9 +2,18 @@
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import org.pfj.lang.Result;
 
 public interface Serializer {
     Result<ByteBuf> serialize(Object success);
+
+    /**
+     * Serialize value into the buffer obtained from provided allocator. Default implementation ignores allocator.
+     */
+    default Result<ByteBuf> serialize(Object success, ByteBufAllocator allocator) {
+        return serialize(success);
+    }
+
     <T> Result<T> deserialize(ByteBuf entity, TypeReference<T> literal);
 }
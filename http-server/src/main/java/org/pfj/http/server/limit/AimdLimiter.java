@@ -0,0 +1,80 @@
+package org.pfj.http.server.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free AIMD concurrency limiter. Limit adjustments are not atomic with respect to each other, concurrent updates
+ * may be lost, which is acceptable since limit is an estimate refined by every completed request.
+ */
+final class AimdLimiter implements ConcurrencyLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    AimdLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos, double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid limits: initial " + initialLimit + ", min " + minLimit + ", max " + maxLimit);
+        }
+
+        if (backoffRatio <= 0.0 || backoffRatio >= 1.0) {
+            throw new IllegalArgumentException("Backoff ratio must be in range (0, 1), but was " + backoffRatio);
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = initialLimit;
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        while (true) {
+            var current = inFlight.get();
+
+            if (current >= limit) {
+                return false;
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void release(long latencyNanos) {
+        var current = inFlight.getAndDecrement();
+        var currentLimit = limit;
+
+        if (latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, (int) (currentLimit * backoffRatio));
+        } else if (current * 2 >= currentLimit) {
+            //Grow only if limit is actually used, otherwise it may grow indefinitely under light load
+            limit = Math.min(maxLimit, currentLimit + 1);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    @Override
+    public int limit() {
+        return limit;
+    }
+
+    @Override
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public String toString() {
+        return "AimdLimiter(" + limit + ")";
+    }
+}
@@ -0,0 +1,88 @@
+package org.pfj.http.server.limit;
+
+import java.time.Duration;
+
+/**
+ * Limits number of concurrently processed requests. Excess requests are rejected before handler is invoked.
+ * <br/>
+ * Same limiter instance may be shared by several routes, in this case they share the limit.
+ */
+public interface ConcurrencyLimiter {
+    /**
+     * Try to acquire permit for the request.
+     *
+     * @return <code>true</code> if request can be processed, <code>false</code> if it should be rejected.
+     */
+    boolean tryAcquire();
+
+    /**
+     * Return permit acquired by {@link #tryAcquire()}.
+     *
+     * @param latencyNanos Time spent by the handler, used to adapt the limit.
+     */
+    void release(long latencyNanos);
+
+    /**
+     * Return permit acquired by {@link #tryAcquire()} for the request which was not processed. Limit is not adjusted.
+     */
+    void cancel();
+
+    /**
+     * Current limit.
+     */
+    int limit();
+
+    /**
+     * Number of acquired permits.
+     */
+    int inFlight();
+
+    static ConcurrencyLimiter unlimited() {
+        return Unlimited.INSTANCE;
+    }
+
+    /**
+     * Additive increase/multiplicative decrease limiter. Limit grows by one while requests complete faster than
+     * latency threshold and limit is actually used, and is multiplied by <code>backoffRatio</code> when request takes
+     * longer than the threshold.
+     */
+    static ConcurrencyLimiter aimd(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold, double backoffRatio) {
+        return new AimdLimiter(initialLimit, minLimit, maxLimit, latencyThreshold.toNanos(), backoffRatio);
+    }
+
+    static ConcurrencyLimiter aimd(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold) {
+        return aimd(initialLimit, minLimit, maxLimit, latencyThreshold, 0.9);
+    }
+
+    enum Unlimited implements ConcurrencyLimiter {
+        INSTANCE;
+
+        @Override
+        public boolean tryAcquire() {
+            return true;
+        }
+
+        @Override
+        public void release(long latencyNanos) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public int limit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public int inFlight() {
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Unlimited";
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.pfj.http.server.limit;
+
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpRequest;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Limits rate of requests per client. Clients are distinguished by the key extracted from the request, for example
+ * remote address or API key passed in the request header. Requests above the limit are rejected with
+ * <code>429 Too Many Requests</code> before handler is invoked.
+ * <br/>
+ * Same limiter instance may be shared by several routes, in this case they share the limit.
+ */
+public interface RateLimiter {
+    int DEFAULT_MAX_KEYS = 65536;
+
+    /**
+     * Try to acquire permit for the request.
+     *
+     * @return Zero if request can be processed, otherwise time in nanoseconds until next permit will be available.
+     */
+    long tryAcquire(Channel channel, HttpRequest request);
+
+    /**
+     * Snapshot of the limiter counters.
+     */
+    RateLimiterStats stats();
+
+    static RateLimiter unlimited() {
+        return Unlimited.INSTANCE;
+    }
+
+    /**
+     * Limit rate of requests from each remote address.
+     *
+     * @param rate  Sustained rate, requests per second.
+     * @param burst Number of requests which can be sent at once.
+     */
+    static RateLimiter perRemoteAddress(double rate, int burst) {
+        return tokenBucket(KeyResolver.remoteAddress(), rate, burst, DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * Limit rate of requests for each value of provided header (API key). Requests without header are limited by
+     * remote address.
+     *
+     * @param rate  Sustained rate, requests per second.
+     * @param burst Number of requests which can be sent at once.
+     */
+    static RateLimiter perHeader(CharSequence header, double rate, int burst) {
+        return tokenBucket(KeyResolver.header(header), rate, burst, DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * Token bucket limiter with bounded number of tracked keys. Once limit of keys is reached, least recently used
+     * keys are evicted, idle keys (with full bucket) go first.
+     */
+    static RateLimiter tokenBucket(KeyResolver resolver, double rate, int burst, int maxKeys) {
+        return new TokenBucketLimiter(resolver, rate, burst, maxKeys);
+    }
+
+    /**
+     * Convert time returned by {@link #tryAcquire(Channel, HttpRequest)} into the value of <code>Retry-After</code>
+     * header.
+     */
+    static long retryAfterSeconds(long nanos) {
+        return Math.max(1, (nanos + 999_999_999L) / 1_000_000_000L);
+    }
+
+    /**
+     * Extracts client key from the request. Keys must have proper {@link Object#equals(Object)} and
+     * {@link Object#hashCode()}.
+     */
+    @FunctionalInterface
+    interface KeyResolver {
+        Object resolve(Channel channel, HttpRequest request);
+
+        //InetAddress is cached by the channel, so no allocation is necessary
+        static KeyResolver remoteAddress() {
+            return (channel, request) -> channel.remoteAddress() instanceof InetSocketAddress address
+                ? address.getAddress()
+                : channel.remoteAddress();
+        }
+
+        static KeyResolver header(CharSequence name) {
+            var fallback = remoteAddress();
+
+            return (channel, request) -> {
+                var value = request.headers().get(name);
+
+                return value != null ? value : fallback.resolve(channel, request);
+            };
+        }
+    }
+
+    /**
+     * Limiter counters.
+     *
+     * @param permitted   Number of permitted requests.
+     * @param limited     Number of rejected requests.
+     * @param limitedKeys Number of times some key reached the limit. Key which keeps sending requests above the limit
+     *                    is counted once until it gets permit again.
+     * @param trackedKeys Number of keys currently tracked by limiter.
+     * @param evictedKeys Number of keys evicted because of the limit of tracked keys.
+     */
+    record RateLimiterStats(long permitted, long limited, long limitedKeys, long trackedKeys, long evictedKeys) {
+        private static final RateLimiterStats EMPTY = new RateLimiterStats(0, 0, 0, 0, 0);
+
+        public static RateLimiterStats empty() {
+            return EMPTY;
+        }
+    }
+
+    enum Unlimited implements RateLimiter {
+        INSTANCE;
+
+        @Override
+        public long tryAcquire(Channel channel, HttpRequest request) {
+            return 0;
+        }
+
+        @Override
+        public RateLimiterStats stats() {
+            return RateLimiterStats.empty();
+        }
+
+        @Override
+        public String toString() {
+            return "Unlimited";
+        }
+    }
+}
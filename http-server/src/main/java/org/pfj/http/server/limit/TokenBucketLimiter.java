@@ -0,0 +1,174 @@
+package org.pfj.http.server.limit;
+
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpRequest;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket limiter implemented as GCRA (generic cell rate algorithm): state of each bucket is a single
+ * "theoretical arrival time", which is updated with CAS. Bucket whose arrival time is in the past is full and
+ * indistinguishable from the new one, so such buckets can be evicted without affecting limits.
+ * <br/>
+ * Keys are spread across stripes, each stripe holds bounded number of keys. When stripe is full, new key replaces
+ * idle or least recently used key among few randomly sampled ones, so cost of the new key is constant. Requests with
+ * already tracked keys never lock.
+ */
+final class TokenBucketLimiter implements RateLimiter {
+    private static final int STRIPES = 16;
+    private static final int EVICTION_SAMPLES = 5;
+
+    private final RateLimiter.KeyResolver resolver;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final int maxKeysPerStripe;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder permitted = new LongAdder();
+    private final LongAdder limited = new LongAdder();
+    private final LongAdder limitedKeys = new LongAdder();
+    private final LongAdder evictedKeys = new LongAdder();
+
+    TokenBucketLimiter(RateLimiter.KeyResolver resolver, double rate, int burst, int maxKeys) {
+        if (rate <= 0.0 || burst < 1 || maxKeys < 1) {
+            throw new IllegalArgumentException("Invalid rate limit: rate " + rate + ", burst " + burst + ", max keys " + maxKeys);
+        }
+
+        this.resolver = resolver;
+        this.intervalNanos = Math.max(1L, (long) (1_000_000_000L / rate));
+        this.toleranceNanos = intervalNanos * burst;
+        this.maxKeysPerStripe = Math.max(1, maxKeys / STRIPES);
+
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public long tryAcquire(Channel channel, HttpRequest request) {
+        return tryAcquire(resolver.resolve(channel, request), System.nanoTime());
+    }
+
+    long tryAcquire(Object key, long now) {
+        var bucket = stripeFor(key).bucket(key, now);
+
+        while (true) {
+            var arrival = bucket.get();
+            var next = Math.max(arrival, now) + intervalNanos;
+            var wait = next - now - toleranceNanos;
+
+            if (wait > 0) {
+                limited.increment();
+
+                if (!bucket.limited) {
+                    bucket.limited = true;
+                    limitedKeys.increment();
+                }
+                return wait;
+            }
+
+            if (bucket.compareAndSet(arrival, next)) {
+                permitted.increment();
+
+                if (bucket.limited) {
+                    bucket.limited = false;
+                }
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public RateLimiterStats stats() {
+        long tracked = 0;
+
+        for (var stripe : stripes) {
+            tracked += stripe.size;
+        }
+
+        return new RateLimiterStats(permitted.sum(), limited.sum(), limitedKeys.sum(), tracked, evictedKeys.sum());
+    }
+
+    private Stripe stripeFor(Object key) {
+        var hash = key.hashCode();
+
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucketLimiter(" + 1_000_000_000L / intervalNanos + "/s, burst " + toleranceNanos / intervalNanos + ")";
+    }
+
+    private static final class Bucket extends AtomicLong {
+        //Racy by design, used only for statistics
+        private boolean limited;
+
+        Bucket(long arrival) {
+            super(arrival);
+        }
+    }
+
+    private final class Stripe {
+        private final ConcurrentHashMap<Object, Bucket> buckets = new ConcurrentHashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        //Tracked keys by slot, allow picking random keys for eviction. Guarded by lock
+        private final Object[] keys = new Object[maxKeysPerStripe];
+        private volatile int size;
+
+        Bucket bucket(Object key, long now) {
+            var bucket = buckets.get(key);
+
+            if (bucket != null) {
+                return bucket;
+            }
+
+            lock.lock();
+            try {
+                var existing = buckets.get(key);
+
+                if (existing != null) {
+                    return existing;
+                }
+
+                var slot = size < keys.length ? size++ : evict(now);
+                var created = new Bucket(now);
+
+                keys[slot] = key;
+                buckets.put(key, created);
+                return created;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        //Approximated LRU: first idle bucket or the one with the oldest arrival time among few random samples is
+        //evicted, so cost does not depend on the number of keys. Returns slot of the evicted key.
+        private int evict(long now) {
+            var random = ThreadLocalRandom.current();
+            var victim = random.nextInt(keys.length);
+            var victimArrival = buckets.get(keys[victim]).get();
+
+            for (int i = 1; i < EVICTION_SAMPLES && victimArrival - now > 0; i++) {
+                var slot = random.nextInt(keys.length);
+                var arrival = buckets.get(keys[slot]).get();
+
+                if (arrival - victimArrival < 0) {
+                    victim = slot;
+                    victimArrival = arrival;
+                }
+            }
+
+            buckets.remove(keys[victim]);
+
+            //Idle bucket is full, removing it does not affect limits
+            if (victimArrival - now > 0) {
+                evictedKeys.increment();
+            }
+            return victim;
+        }
+    }
+}
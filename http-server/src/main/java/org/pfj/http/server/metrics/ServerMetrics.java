@@ -0,0 +1,325 @@
+package org.pfj.http.server.metrics;
+
+import io.netty.util.concurrent.FastThreadLocal;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SingleWriterRecorder;
+import org.pfj.http.server.cache.ResponseCache;
+import org.pfj.http.server.limit.ConcurrencyLimiter;
+import org.pfj.http.server.limit.RateLimiter;
+import org.pfj.http.server.routing.Route;
+import org.pfj.http.server.routing.RouteOptions;
+import org.pfj.http.server.routing.RoutingTable;
+import org.pfj.lang.Option;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Per-route request counters, in-flight gauges and latency histograms.
+ * <br/>
+ * Each thread which records metrics (normally event loop) gets its own set of recorders, so recording is lock-free
+ * and does not allocate (except rare resize of the histogram storage). Recorders are merged when metrics are
+ * scraped. Requests which were not routed (not found, rejected by the codec, CORS preflight) are accounted as
+ * <code>unmatched</code>. Counters of the response cache, if it is enabled, are reported as well.
+ */
+public final class ServerMetrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final List<Route<?>> routes;
+    private final Map<Route<?>, Integer> indices = new IdentityHashMap<>();
+    private final int unmatched;
+    private final List<LoopRecorder> recorders = new CopyOnWriteArrayList<>();
+    private final Histogram[] latencies;
+    private final Option<ResponseCache> cache;
+    private final FastThreadLocal<LoopRecorder> recorder = new FastThreadLocal<>() {
+        @Override
+        protected LoopRecorder initialValue() {
+            var loopRecorder = new LoopRecorder(routes.size() + 1);
+            recorders.add(loopRecorder);
+            return loopRecorder;
+        }
+    };
+
+    private ServerMetrics(List<Route<?>> routes, Option<ResponseCache> cache) {
+        this.routes = routes;
+        this.cache = cache;
+        this.unmatched = routes.size();
+        this.latencies = new Histogram[routes.size() + 1];
+
+        for (int i = 0; i < routes.size(); i++) {
+            indices.put(routes.get(i), i);
+        }
+
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new Histogram(SIGNIFICANT_DIGITS);
+        }
+    }
+
+    public static ServerMetrics create(RoutingTable routingTable) {
+        return create(routingTable, Option.empty());
+    }
+
+    public static ServerMetrics create(RoutingTable routingTable, Option<ResponseCache> cache) {
+        return new ServerMetrics(routingTable.routes(), cache);
+    }
+
+    /**
+     * Index of the route used for recording, or index of <code>unmatched</code> pseudo-route if route is not known.
+     */
+    public int indexOf(Route<?> route) {
+        var index = indices.get(route);
+
+        return index == null ? unmatched : index;
+    }
+
+    /**
+     * Request is dispatched to the route.
+     */
+    public void started(int route) {
+        recorder.get().started(route);
+    }
+
+    /**
+     * Response to the request dispatched to the route is written. Must be called on the same thread as
+     * {@link #started(int)}.
+     */
+    public void completed(int route, int status, long latencyNanos) {
+        recorder.get().completed(route, status, latencyNanos, true);
+    }
+
+    /**
+     * Request dispatched to the route will not be responded, for example because connection is closed.
+     */
+    public void abandoned(int route) {
+        recorder.get().abandoned(route);
+    }
+
+    /**
+     * Response to the request which was not dispatched to any route is written.
+     */
+    public void completedUnmatched(int status, long latencyNanos) {
+        recorder.get().completed(unmatched, status, latencyNanos, false);
+    }
+
+    /**
+     * Render metrics in Prometheus text exposition format.
+     */
+    public synchronized String scrape() {
+        var counts = new long[(routes.size() + 1) * StatusCodes.SLOTS];
+        var inFlight = new long[routes.size() + 1];
+
+        for (var loopRecorder : recorders) {
+            loopRecorder.collect(counts, inFlight, latencies);
+        }
+
+        var output = new StringBuilder(4096);
+
+        output.append("# TYPE http_requests_total counter\n");
+        for (int route = 0; route <= routes.size(); route++) {
+            for (int slot = 0; slot < StatusCodes.SLOTS; slot++) {
+                var count = counts[route * StatusCodes.SLOTS + slot];
+
+                if (count > 0) {
+                    sample(output, "http_requests_total", route, "code", StatusCodes.label(slot), count);
+                }
+            }
+        }
+
+        output.append("# TYPE http_requests_in_flight gauge\n");
+        for (int route = 0; route < routes.size(); route++) {
+            sample(output, "http_requests_in_flight", route, null, null, inFlight[route]);
+        }
+
+        output.append("# TYPE http_request_duration_seconds summary\n");
+        for (int route = 0; route <= routes.size(); route++) {
+            var histogram = latencies[route];
+
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+
+            for (var quantile : QUANTILES) {
+                sample(output, "http_request_duration_seconds", route, "quantile", Double.toString(quantile),
+                       histogram.getValueAtPercentile(quantile * 100.0) / NANOS_PER_SECOND);
+            }
+            sample(output, "http_request_duration_seconds_sum", route, null, null,
+                   histogram.getMean() * histogram.getTotalCount() / NANOS_PER_SECOND);
+            sample(output, "http_request_duration_seconds_count", route, null, null, histogram.getTotalCount());
+        }
+
+        appendLimiters(output);
+        cache.whenPresent(responseCache -> appendCache(output, responseCache.stats()));
+
+        return output.toString();
+    }
+
+    //Limiters shared by several routes are reported for each of them
+    private void appendLimiters(StringBuilder output) {
+        appendFamily(output, "http_concurrency_limit", "gauge", (options, route) -> {
+            if (options.limiter() != ConcurrencyLimiter.unlimited()) {
+                sample(output, "http_concurrency_limit", route, null, null, options.limiter().limit());
+            }
+        });
+
+        var rateStats = new RateLimiter.RateLimiterStats[routes.size()];
+
+        for (int route = 0; route < routes.size(); route++) {
+            var rateLimiter = routes.get(route).options().rateLimiter();
+
+            rateStats[route] = rateLimiter == RateLimiter.unlimited() ? null : rateLimiter.stats();
+        }
+
+        appendFamily(output, "http_rate_limiter_requests_total", "counter", (options, route) -> {
+            if (rateStats[route] != null) {
+                sample(output, "http_rate_limiter_requests_total", route, "result", "permitted", rateStats[route].permitted());
+                sample(output, "http_rate_limiter_requests_total", route, "result", "limited", rateStats[route].limited());
+            }
+        });
+        appendFamily(output, "http_rate_limiter_limited_keys_total", "counter", (options, route) -> {
+            if (rateStats[route] != null) {
+                sample(output, "http_rate_limiter_limited_keys_total", route, null, null, rateStats[route].limitedKeys());
+            }
+        });
+        appendFamily(output, "http_rate_limiter_tracked_keys", "gauge", (options, route) -> {
+            if (rateStats[route] != null) {
+                sample(output, "http_rate_limiter_tracked_keys", route, null, null, rateStats[route].trackedKeys());
+            }
+        });
+        appendFamily(output, "http_rate_limiter_evicted_keys_total", "counter", (options, route) -> {
+            if (rateStats[route] != null) {
+                sample(output, "http_rate_limiter_evicted_keys_total", route, null, null, rateStats[route].evictedKeys());
+            }
+        });
+    }
+
+    private static void appendCache(StringBuilder output, ResponseCache.CacheStats stats) {
+        output.append("# TYPE http_response_cache_requests_total counter\n")
+              .append("http_response_cache_requests_total{result=\"hit\"} ").append(stats.hits()).append('\n')
+              .append("http_response_cache_requests_total{result=\"miss\"} ").append(stats.misses()).append('\n')
+              .append("# TYPE http_response_cache_evictions_total counter\n")
+              .append("http_response_cache_evictions_total ").append(stats.evictions()).append('\n')
+              .append("# TYPE http_response_cache_entries gauge\n")
+              .append("http_response_cache_entries ").append(stats.entries()).append('\n')
+              .append("# TYPE http_response_cache_bytes gauge\n")
+              .append("http_response_cache_bytes ").append(stats.bytes()).append('\n');
+    }
+
+    //Family header is omitted if there are no samples
+    private void appendFamily(StringBuilder output, String name, String type, ObjIntConsumer<RouteOptions> samples) {
+        var start = output.length();
+
+        output.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+
+        var header = output.length();
+
+        for (int route = 0; route < routes.size(); route++) {
+            samples.accept(routes.get(route).options(), route);
+        }
+
+        if (output.length() == header) {
+            output.setLength(start);
+        }
+    }
+
+    private void sample(StringBuilder output, String name, int route, String label, String value, Number sample) {
+        output.append(name).append('{');
+
+        if (route == unmatched) {
+            output.append("method=\"\",route=\"unmatched\"");
+        } else {
+            output.append("method=\"").append(routes.get(route).method().name())
+                  .append("\",route=\"");
+            escape(output, routes.get(route).path());
+            output.append('"');
+        }
+
+        if (label != null) {
+            output.append(',').append(label).append("=\"").append(value).append('"');
+        }
+
+        output.append("} ").append(sample).append('\n');
+    }
+
+    private static void escape(StringBuilder output, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+
+            switch (c) {
+                case '\\' -> output.append("\\\\");
+                case '"' -> output.append("\\\"");
+                case '\n' -> output.append("\\n");
+                default -> output.append(c);
+            }
+        }
+    }
+
+    /**
+     * Recorders owned by single thread. Counters are updated with lazySet, since there is only one writer.
+     */
+    private static final class LoopRecorder {
+        private final AtomicLongArray counts;
+        private final AtomicLongArray inFlight;
+        private final AtomicReferenceArray<SingleWriterRecorder> latencies;
+        private final Histogram[] intervals;
+
+        LoopRecorder(int routes) {
+            this.counts = new AtomicLongArray(routes * StatusCodes.SLOTS);
+            this.inFlight = new AtomicLongArray(routes);
+            this.latencies = new AtomicReferenceArray<>(routes);
+            this.intervals = new Histogram[routes];
+        }
+
+        void started(int route) {
+            inFlight.lazySet(route, inFlight.get(route) + 1);
+        }
+
+        void abandoned(int route) {
+            inFlight.lazySet(route, inFlight.get(route) - 1);
+        }
+
+        void completed(int route, int status, long latencyNanos, boolean routed) {
+            if (routed) {
+                inFlight.lazySet(route, inFlight.get(route) - 1);
+            }
+
+            var slot = route * StatusCodes.SLOTS + StatusCodes.index(status);
+            counts.lazySet(slot, counts.get(slot) + 1);
+
+            var latency = latencies.get(route);
+
+            //Histograms are created lazily, most event loops serve only part of the routes
+            if (latency == null) {
+                latency = new SingleWriterRecorder(SIGNIFICANT_DIGITS, true);
+                latencies.set(route, latency);
+            }
+
+            latency.recordValue(Math.max(0, latencyNanos));
+        }
+
+        //Called under scrape lock
+        void collect(long[] totalCounts, long[] totalInFlight, Histogram[] totalLatencies) {
+            for (int i = 0; i < totalCounts.length; i++) {
+                totalCounts[i] += counts.get(i);
+            }
+
+            for (int route = 0; route < totalInFlight.length; route++) {
+                totalInFlight[route] += inFlight.get(route);
+
+                var latency = latencies.get(route);
+
+                if (latency != null) {
+                    intervals[route] = latency.getIntervalHistogram(intervals[route]);
+                    totalLatencies[route].add(intervals[route]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.pfj.http.server.metrics;
+
+/**
+ * Compact indexing of HTTP status codes for counters. Commonly used codes get own slot, the rest are counted per
+ * status class (<code>1xx</code>, <code>2xx</code>, etc.).
+ */
+final class StatusCodes {
+    private static final int[] CODES = {
+        100, 101,
+        200, 201, 202, 203, 204, 206,
+        301, 302, 303, 304, 307, 308,
+        400, 401, 403, 404, 405, 406, 408, 409, 410, 411, 412, 413, 414, 415, 416, 417, 422, 429, 431,
+        500, 501, 502, 503, 504, 505
+    };
+    private static final String[] CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+    private static final int[] INDEX = new int[600];
+
+    static final int SLOTS = CODES.length + CLASSES.length;
+
+    static {
+        for (int code = 100; code < 600; code++) {
+            INDEX[code] = CODES.length + code / 100 - 1;
+        }
+        for (int i = 0; i < CODES.length; i++) {
+            INDEX[CODES[i]] = i;
+        }
+    }
+
+    private StatusCodes() {
+    }
+
+    static int index(int status) {
+        return status >= 100 && status < 600 ? INDEX[status] : SLOTS - 1;
+    }
+
+    static String label(int index) {
+        return index < CODES.length
+            ? Integer.toString(CODES[index])
+            : CLASSES[index - CODES.length];
+    }
+}
@@ -0,0 +1,48 @@
+package org.pfj.http.server.routing;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Caching of the route responses, see {@link org.pfj.http.server.cache.ResponseCache}. Responses are cached by
+ * normalized request path and values of the selected query parameters and request headers. Other parameters and
+ * headers are not taken into account, so they must not affect response.
+ *
+ * @param ttl         Time to live of the cached response. Zero means that caching is disabled.
+ * @param queryParams Names of the query parameters which are part of the cache key.
+ * @param headers     Names of the request headers which are part of the cache key.
+ */
+public record CacheOptions(Duration ttl, List<String> queryParams, List<String> headers) {
+    private static final CacheOptions DISABLED = new CacheOptions(Duration.ZERO, List.of(), List.of());
+
+    public CacheOptions {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("Cache TTL must not be negative, but was " + ttl);
+        }
+
+        queryParams = List.copyOf(queryParams);
+        headers = headers.stream().map(name -> name.toLowerCase(Locale.ROOT)).toList();
+    }
+
+    public static CacheOptions disabled() {
+        return DISABLED;
+    }
+
+    public static CacheOptions ttl(Duration ttl) {
+        return new CacheOptions(ttl, List.of(), List.of());
+    }
+
+    public boolean enabled() {
+        return !ttl.isZero();
+    }
+
+    public CacheOptions varyByQuery(String... names) {
+        return new CacheOptions(ttl, Stream.concat(queryParams.stream(), Stream.of(names)).toList(), headers);
+    }
+
+    public CacheOptions varyByHeader(String... names) {
+        return new CacheOptions(ttl, queryParams, Stream.concat(headers.stream(), Stream.of(names)).toList());
+    }
+}
@@ -0,0 +1,120 @@
+package org.pfj.http.server.routing;
+
+import io.netty.util.AsciiString;
+import org.pfj.http.server.error.WebError;
+import org.pfj.lang.Result;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.pfj.lang.Result.success;
+
+/**
+ * Response which sends content of the file. File is transferred without copying it through user space whenever
+ * possible. Conditional (<code>If-None-Match</code>, <code>If-Modified-Since</code>) and range requests are supported.
+ */
+public record FileResponse(Path file, AsciiString contentType) {
+    private static final AsciiString DEFAULT_CONTENT_TYPE = AsciiString.cached("application/octet-stream");
+    private static final Map<String, AsciiString> CONTENT_TYPES = Map.ofEntries(
+        Map.entry("html", AsciiString.cached("text/html; charset=UTF-8")),
+        Map.entry("htm", AsciiString.cached("text/html; charset=UTF-8")),
+        Map.entry("txt", AsciiString.cached("text/plain; charset=UTF-8")),
+        Map.entry("css", AsciiString.cached("text/css; charset=UTF-8")),
+        Map.entry("csv", AsciiString.cached("text/csv; charset=UTF-8")),
+        Map.entry("js", AsciiString.cached("text/javascript; charset=UTF-8")),
+        Map.entry("json", AsciiString.cached("application/json; charset=UTF-8")),
+        Map.entry("xml", AsciiString.cached("application/xml")),
+        Map.entry("pdf", AsciiString.cached("application/pdf")),
+        Map.entry("zip", AsciiString.cached("application/zip")),
+        Map.entry("gz", AsciiString.cached("application/gzip")),
+        Map.entry("wasm", AsciiString.cached("application/wasm")),
+        Map.entry("png", AsciiString.cached("image/png")),
+        Map.entry("jpg", AsciiString.cached("image/jpeg")),
+        Map.entry("jpeg", AsciiString.cached("image/jpeg")),
+        Map.entry("gif", AsciiString.cached("image/gif")),
+        Map.entry("svg", AsciiString.cached("image/svg+xml")),
+        Map.entry("ico", AsciiString.cached("image/x-icon")),
+        Map.entry("webp", AsciiString.cached("image/webp")),
+        Map.entry("woff", AsciiString.cached("font/woff")),
+        Map.entry("woff2", AsciiString.cached("font/woff2")),
+        Map.entry("mp4", AsciiString.cached("video/mp4")),
+        Map.entry("mp3", AsciiString.cached("audio/mpeg"))
+    );
+
+    /**
+     * Create response for provided file, content type is guessed from file extension.
+     */
+    public static FileResponse of(Path file) {
+        return new FileResponse(file, contentTypeOf(file));
+    }
+
+    /**
+     * Resolve file relative to the root directory. Path segments are URL-decoded, attempts to escape root directory
+     * are rejected with {@link WebError#NOT_FOUND}. Symbolic links are followed, so check is performed against real
+     * paths of the file and the root, and response refers to the real file. Missing files are rejected as well.
+     */
+    public static Result<FileResponse> resolve(Path root, List<String> segments) {
+        var builder = new StringBuilder();
+
+        for (var segment : segments) {
+            var decoded = decode(segment);
+
+            if (decoded.isEmpty() || decoded.equals(".") || decoded.equals("..")
+                || decoded.indexOf('/') >= 0 || decoded.indexOf('\\') >= 0 || decoded.indexOf('\0') >= 0) {
+                return WebError.NOT_FOUND.result();
+            }
+
+            if (!builder.isEmpty()) {
+                builder.append('/');
+            }
+            builder.append(decoded);
+        }
+
+        var file = root.resolve(builder.toString()).normalize();
+
+        if (!file.startsWith(root) || file.equals(root)) {
+            return WebError.NOT_FOUND.result();
+        }
+
+        Path realFile;
+        Path realRoot;
+
+        try {
+            realFile = file.toRealPath();
+            realRoot = root.toRealPath();
+        } catch (IOException e) {
+            return WebError.NOT_FOUND.result();
+        }
+
+        //Content type is taken from the requested name, link may point to the file with different extension
+        return realFile.startsWith(realRoot) && !realFile.equals(realRoot)
+            ? success(new FileResponse(realFile, contentTypeOf(file)))
+            : WebError.NOT_FOUND.result();
+    }
+
+    private static String decode(String segment) {
+        if (segment.indexOf('%') < 0) {
+            return segment;
+        }
+
+        try {
+            //'+' has no special meaning in path, so it should be preserved
+            return URLDecoder.decode(segment.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    private static AsciiString contentTypeOf(Path file) {
+        var name = file.getFileName().toString();
+        var dot = name.lastIndexOf('.');
+
+        return dot < 0
+            ? DEFAULT_CONTENT_TYPE
+            : CONTENT_TYPES.getOrDefault(name.substring(dot + 1).toLowerCase(), DEFAULT_CONTENT_TYPE);
+    }
+}
@@ -0,0 +1,50 @@
+package org.pfj.http.server.routing;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response which content is compressed once, in advance, with the best compression level. Intended for responses
+ * which are sent many times, like reference data or generated static content: instance is created once and returned
+ * by the handler for each request. Clients which accept gzip receive compressed variant, others receive content as is.
+ * Route content type is used.
+ * <br/>
+ * Both variants are kept in direct memory for the whole life of the instance and are never released.
+ */
+public record PrecompressedResponse(ByteBuf identity, ByteBuf gzip) {
+    public PrecompressedResponse {
+        identity = Unpooled.unreleasableBuffer(identity.asReadOnly());
+        gzip = Unpooled.unreleasableBuffer(gzip.asReadOnly());
+    }
+
+    public static PrecompressedResponse of(String content) {
+        return of(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PrecompressedResponse of(byte[] content) {
+        return new PrecompressedResponse(direct(content), direct(gzip(content)));
+    }
+
+    private static ByteBuf direct(byte[] content) {
+        return Unpooled.directBuffer(content.length).writeBytes(content);
+    }
+
+    private static byte[] gzip(byte[] content) {
+        var output = new ByteArrayOutputStream(content.length / 2 + 32);
+
+        try (var gzip = new GZIPOutputStream(output) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return output.toByteArray();
+    }
+}
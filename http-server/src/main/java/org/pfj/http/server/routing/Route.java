@@ -2,8 +2,15 @@
 
 import org.pfj.http.server.config.serialization.ContentType;
 import org.pfj.http.server.Handler;
+import org.pfj.http.server.limit.ConcurrencyLimiter;
+import org.pfj.http.server.limit.RateLimiter;
 import org.pfj.lang.Result;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -14,14 +21,20 @@
 import static org.pfj.http.server.util.Utils.normalize;
 import static org.pfj.lang.Promise.promise;
 
-public record Route<T>(HttpMethod method, String path, Handler<T> handler, ContentType contentType) implements RouteSource {
+public record Route<T>(HttpMethod method, String path, Handler<T> handler, ContentType contentType, RouteOptions options)
+	implements RouteSource {
+
 	public Route {
 		path = normalize(path);
 	}
 
+	public Route(HttpMethod method, String path, Handler<T> handler, ContentType contentType) {
+		this(method, path, handler, contentType, RouteOptions.defaults());
+	}
+
 	@Override
 	public String toString() {
-		return "Route: " + method + ": " + path +  ", contentType=" + contentType;
+		return "Route: " + method + ": " + path +  ", contentType=" + contentType + ", " + options;
 	}
 
 	@Override
@@ -31,7 +44,62 @@ public Stream<Route<?>> routes() {
 
 	@Override
 	public RouteSource withPrefix(String prefix) {
-		return new Route<T>(method, normalize(prefix + path), handler, contentType);
+		return new Route<T>(method, normalize(prefix + path), handler, contentType, options);
+	}
+
+	@Override
+	public RouteSource withRateLimit(RateLimiter rateLimiter) {
+		return new Route<T>(method, path, handler, contentType, options.withRateLimiter(rateLimiter));
+	}
+
+	/**
+	 * Extract path parameters from the normalized request path matched by this route. Values of <code>{name}</code>
+	 * placeholders go first (in order of appearance), followed by remaining segments of the path (if any).
+	 */
+	public List<String> pathParams(String requestPath) {
+		var params = new ArrayList<String>();
+		var templatePos = 1;
+		var pos = 1;
+
+		while (templatePos < path.length() && pos < requestPath.length()) {
+			var templateEnd = segmentEnd(path, templatePos);
+
+			if (isWildcard(path, templatePos, templateEnd)) {
+				break;
+			}
+
+			var end = segmentEnd(requestPath, pos);
+
+			if (isPlaceholder(path, templatePos, templateEnd)) {
+				params.add(requestPath.substring(pos, end));
+			}
+
+			templatePos = templateEnd + 1;
+			pos = end + 1;
+		}
+
+		while (pos < requestPath.length()) {
+			var end = segmentEnd(requestPath, pos);
+
+			params.add(requestPath.substring(pos, end));
+			pos = end + 1;
+		}
+
+		return Collections.unmodifiableList(params);
+	}
+
+	static boolean isPlaceholder(String path, int start, int end) {
+		return end - start > 2 && path.charAt(start) == '{' && path.charAt(end - 1) == '}';
+	}
+
+	static boolean isWildcard(String path, int start, int end) {
+		return end - start == 1 && path.charAt(start) == '*';
+	}
+
+	private static int segmentEnd(String path, int start) {
+		var end = path.indexOf('/', start);
+
+		return end < 0 ? path.length() : end;
 	}
 
 	public static RouteSource from(String basePath, RouteSource... routes) {
@@ -118,31 +186,155 @@ public RouteBuilder1 connect() {
 		}
 	}
 
-	public record RouteBuilder1(String path, HttpMethod method) {
+	public record RouteBuilder1(String path, HttpMethod method, RouteOptions options) {
+		public RouteBuilder1(String path, HttpMethod method) {
+			this(path, method, RouteOptions.defaults());
+		}
+
+		/**
+		 * Do not aggregate request body, handler receives it chunk by chunk via {@link org.pfj.http.server.RequestContext#bodyStream()}.
+		 */
+		public RouteBuilder1 streaming() {
+			return new RouteBuilder1(path, method, options.withStreaming(true));
+		}
+
+		/**
+		 * Handler may block, invoke it on the blocking executor instead of the event loop.
+		 */
+		public RouteBuilder1 blocking() {
+			return new RouteBuilder1(path, method, options.withBlocking(true));
+		}
+
+		/**
+		 * Fail request if handler does not complete within provided time.
+		 */
+		public RouteBuilder1 timeout(Duration timeout) {
+			return new RouteBuilder1(path, method, options.withTimeout(timeout));
+		}
+
+		/**
+		 * Limit number of concurrently processed requests, excess requests are rejected with <code>429 Too Many Requests</code>.
+		 */
+		public RouteBuilder1 concurrencyLimit(ConcurrencyLimiter limiter) {
+			return new RouteBuilder1(path, method, options.withLimiter(limiter));
+		}
+
+		/**
+		 * Limit rate of requests per client, excess requests are rejected with <code>429 Too Many Requests</code>.
+		 */
+		public RouteBuilder1 rateLimit(RateLimiter rateLimiter) {
+			return new RouteBuilder1(path, method, options.withRateLimiter(rateLimiter));
+		}
+
+		/**
+		 * Compress responses of this route with provided level (1-9) instead of the server default, zero disables compression.
+		 */
+		public RouteBuilder1 compression(int level) {
+			return new RouteBuilder1(path, method, options.withCompressionLevel(level));
+		}
+
+		/**
+		 * Cache responses of this route, handler is not invoked while cached response is valid. Only GET routes can be cached.
+		 */
+		public RouteBuilder1 cache(CacheOptions cache) {
+			if (!HttpMethod.GET.equals(method)) {
+				throw new IllegalArgumentException("Only GET routes can be cached, but route " + path + " is " + method);
+			}
+			return new RouteBuilder1(path, method, options.withCache(cache));
+		}
+
 		public RouteBuilder2 text() {
-			return new RouteBuilder2(path, method, TEXT_PLAIN);
+			return new RouteBuilder2(path, method, TEXT_PLAIN, options);
 		}
 
 		public RouteBuilder2 json() {
-			return new RouteBuilder2(path, method, APPLICATION_JSON);
+			return new RouteBuilder2(path, method, APPLICATION_JSON, options);
 		}
 
 		public <T> Route<T> from(Handler<T> handler) {
-			return new Route<>(method, path, handler, TEXT_PLAIN);
+			return new Route<>(method, path, handler, TEXT_PLAIN, options);
 		}
 
 		public <T> Route<T> from(Supplier<Result<T>> supplier) {
-			return new Route<>(method, path, __ -> promise(supplier.get()), TEXT_PLAIN);
+			return new Route<>(method, path, __ -> promise(supplier.get()), TEXT_PLAIN, options);
+		}
+
+		/**
+		 * Serve files from provided directory. Remaining part of the request path is resolved against the directory.
+		 * Path resolution and file metadata lookup are performed on the event loop, which is fine for local file
+		 * systems with warm metadata cache. Use {@link #blocking()} for slow or network file systems, then path
+		 * resolution runs on the blocking executor.
+		 */
+		public Route<FileResponse> files(Path root) {
+			var base = root.toAbsolutePath().normalize();
+
+			return new Route<>(method, path, request -> promise(FileResponse.resolve(base, request.pathParams())), TEXT_PLAIN, options);
 		}
 	}
 
-	public record RouteBuilder2(String path, HttpMethod method, ContentType contentType) {
+	public record RouteBuilder2(String path, HttpMethod method, ContentType contentType, RouteOptions options) {
+		public RouteBuilder2(String path, HttpMethod method, ContentType contentType) {
+			this(path, method, contentType, RouteOptions.defaults());
+		}
+
+		/**
+		 * Do not aggregate request body, handler receives it chunk by chunk via {@link org.pfj.http.server.RequestContext#bodyStream()}.
+		 */
+		public RouteBuilder2 streaming() {
+			return new RouteBuilder2(path, method, contentType, options.withStreaming(true));
+		}
+
+		/**
+		 * Handler may block, invoke it on the blocking executor instead of the event loop.
+		 */
+		public RouteBuilder2 blocking() {
+			return new RouteBuilder2(path, method, contentType, options.withBlocking(true));
+		}
+
+		/**
+		 * Fail request if handler does not complete within provided time.
+		 */
+		public RouteBuilder2 timeout(Duration timeout) {
+			return new RouteBuilder2(path, method, contentType, options.withTimeout(timeout));
+		}
+
+		/**
+		 * Limit number of concurrently processed requests, excess requests are rejected with <code>429 Too Many Requests</code>.
+		 */
+		public RouteBuilder2 concurrencyLimit(ConcurrencyLimiter limiter) {
+			return new RouteBuilder2(path, method, contentType, options.withLimiter(limiter));
+		}
+
+		/**
+		 * Limit rate of requests per client, excess requests are rejected with <code>429 Too Many Requests</code>.
+		 */
+		public RouteBuilder2 rateLimit(RateLimiter rateLimiter) {
+			return new RouteBuilder2(path, method, contentType, options.withRateLimiter(rateLimiter));
+		}
+
+		/**
+		 * Compress responses of this route with provided level (1-9) instead of the server default, zero disables compression.
+		 */
+		public RouteBuilder2 compression(int level) {
+			return new RouteBuilder2(path, method, contentType, options.withCompressionLevel(level));
+		}
+
+		/**
+		 * Cache responses of this route, handler is not invoked while cached response is valid. Only GET routes can be cached.
+		 */
+		public RouteBuilder2 cache(CacheOptions cache) {
+			if (!HttpMethod.GET.equals(method)) {
+				throw new IllegalArgumentException("Only GET routes can be cached, but route " + path + " is " + method);
+			}
+			return new RouteBuilder2(path, method, contentType, options.withCache(cache));
+		}
+
 		public <T> Route<T> from(Handler<T> handler) {
-			return new Route<>(method, path, handler, contentType);
+			return new Route<>(method, path, handler, contentType, options);
 		}
 
 		public <T> Route<T> from(Supplier<Result<T>> supplier) {
-			return new Route<>(method, path, __ -> promise(supplier.get()), contentType);
+			return new Route<>(method, path, __ -> promise(supplier.get()), contentType, options);
 		}
 	}
 }
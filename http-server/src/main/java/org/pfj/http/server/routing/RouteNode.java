@@ -0,0 +1,196 @@
+package org.pfj.http.server.routing;
+
+import java.util.Arrays;
+
+/**
+ * Node of the compressed radix tree used by {@link RoutingTable}.
+ * <br/>
+ * Each node holds a static label (run of characters shared by all routes below it) and may have static children (indexed by
+ * their first character), one placeholder child (matches single path segment, i.e. <code>{id}</code>) and terminal routes.
+ * <br/>
+ * Tree is mutated only while {@link RoutingTable} is built, lookups are read-only and do not allocate.
+ */
+final class RouteNode {
+    private static final char[] NO_INDICES = new char[0];
+    private static final RouteNode[] NO_CHILDREN = new RouteNode[0];
+
+    private String label;
+    private char[] indices = NO_INDICES;
+    private RouteNode[] children = NO_CHILDREN;
+    private RouteNode placeholder;
+    private Route<?> wildcard;
+    private Route<?> route;
+
+    private RouteNode(String label) {
+        this.label = label;
+    }
+
+    static RouteNode root() {
+        return new RouteNode("");
+    }
+
+    /**
+     * Add route to the tree. Route path is expected to be normalized (i.e. start and end with '/').
+     */
+    void insert(Route<?> route) {
+        var path = route.path();
+        var node = this;
+        var start = 0;
+        var segment = 1;
+
+        while (segment < path.length()) {
+            var end = path.indexOf('/', segment);
+
+            if (Route.isPlaceholder(path, segment, end)) {
+                node = node.insertStatic(path, start, segment);
+
+                if (node.placeholder == null) {
+                    node.placeholder = new RouteNode("");
+                }
+                node = node.placeholder;
+                start = end;
+            } else if (Route.isWildcard(path, segment, end) && end == path.length() - 1) {
+                node.insertStatic(path, start, segment).wildcard = route;
+                return;
+            }
+
+            segment = end + 1;
+        }
+
+        node.insertStatic(path, start, path.length()).route = route;
+    }
+
+    /**
+     * Find route which matches provided path. The path is expected to be normalized, but trailing '/' may be omitted.
+     *
+     * @param path Input path
+     * @param pos  Position right after the label of this node
+     *
+     * @return matching route or <code>null</code> if there is no match.
+     */
+    Route<?> find(String path, int pos) {
+        var length = path.length();
+
+        if (pos >= length) {
+            //Trailing '/' is implied if input path does not contain it
+            if (pos == length && length > 0 && path.charAt(length - 1) != '/') {
+                var child = child('/');
+
+                if (child != null && child.label.length() == 1) {
+                    var found = child.find(path, pos + 1);
+
+                    if (found != null) {
+                        return found;
+                    }
+                }
+                return null;
+            }
+            return route != null ? route : wildcard;
+        }
+
+        var child = child(path.charAt(pos));
+
+        if (child != null && matches(child.label, path, pos)) {
+            var found = child.find(path, pos + child.label.length());
+
+            if (found != null) {
+                return found;
+            }
+        }
+
+        if (placeholder != null) {
+            var end = path.indexOf('/', pos);
+            var found = placeholder.find(path, end < 0 ? length : end);
+
+            if (found != null) {
+                return found;
+            }
+        }
+
+        //Routes without placeholders at the end accept any tail, remaining segments are exposed as path parameters
+        return wildcard != null ? wildcard : route;
+    }
+
+    private RouteNode insertStatic(String path, int start, int end) {
+        var node = this;
+        var pos = start;
+
+        while (pos < end) {
+            var child = node.child(path.charAt(pos));
+
+            if (child == null) {
+                child = new RouteNode(path.substring(pos, end));
+                node.addChild(child);
+                return child;
+            }
+
+            var common = commonPrefixLength(child.label, path, pos, end);
+
+            if (common < child.label.length()) {
+                child = node.split(child, common);
+            }
+
+            node = child;
+            pos += common;
+        }
+
+        return node;
+    }
+
+    private RouteNode split(RouteNode child, int length) {
+        var parent = new RouteNode(child.label.substring(0, length));
+
+        child.label = child.label.substring(length);
+        parent.addChild(child);
+
+        children[indexOf(parent.label.charAt(0))] = parent;
+
+        return parent;
+    }
+
+    private void addChild(RouteNode child) {
+        indices = Arrays.copyOf(indices, indices.length + 1);
+        children = Arrays.copyOf(children, children.length + 1);
+
+        indices[indices.length - 1] = child.label.charAt(0);
+        children[children.length - 1] = child;
+    }
+
+    private RouteNode child(char c) {
+        var index = indexOf(c);
+
+        return index < 0 ? null : children[index];
+    }
+
+    private int indexOf(char c) {
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(String label, String path, int pos) {
+        var length = label.length();
+
+        if (pos + length <= path.length()) {
+            return path.startsWith(label, pos);
+        }
+
+        //Input may lack trailing '/', which can be the last character of the label
+        return pos + length == path.length() + 1
+            && label.charAt(length - 1) == '/'
+            && path.regionMatches(pos, label, 0, length - 1);
+    }
+
+    private static int commonPrefixLength(String label, String path, int pos, int end) {
+        var limit = Math.min(label.length(), end - pos);
+        var i = 0;
+
+        while (i < limit && label.charAt(i) == path.charAt(pos + i)) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,66 @@
+package org.pfj.http.server.routing;
+
+import org.pfj.http.server.limit.ConcurrencyLimiter;
+import org.pfj.http.server.limit.RateLimiter;
+
+import java.time.Duration;
+
+/**
+ * Optional per-route settings.
+ *
+ * @param streaming Request body is not aggregated, instead it is delivered to the handler chunk by chunk via
+ *                  {@link org.pfj.http.server.RequestContext#bodyStream()}.
+ * @param blocking  Handler may block, so it is invoked on the blocking executor configured via
+ *                  {@link org.pfj.http.server.config.Configuration.Builder#withBlockingExecutor(java.util.concurrent.Executor)}
+ *                  instead of the event loop.
+ * @param timeout   Request deadline, if handler does not complete in time, request is failed with timeout error.
+ *                  Zero means deadline configured for the whole server.
+ * @param limiter   Limiter of concurrently processed requests for this route. Applied in addition to the limiter
+ *                  configured for the whole server.
+ * @param rateLimiter Limiter of request rate per client for this route.
+ * @param compressionLevel Level of the response compression (1-9), zero disables compression and negative value means
+ *                  level configured for the whole server. Has no effect unless compression is enabled via
+ *                  {@link org.pfj.http.server.config.Configuration.Builder#withCompression(org.pfj.http.server.config.CompressionConfig)}.
+ * @param cache     Caching of the responses. Has no effect unless response cache is enabled via
+ *                  {@link org.pfj.http.server.config.Configuration.Builder#withResponseCache(org.pfj.http.server.config.ResponseCacheConfig)}.
+ */
+public record RouteOptions(boolean streaming, boolean blocking, Duration timeout, ConcurrencyLimiter limiter,
+                           RateLimiter rateLimiter, int compressionLevel, CacheOptions cache) {
+    private static final RouteOptions DEFAULTS = new RouteOptions(false, false, Duration.ZERO,
+        ConcurrencyLimiter.unlimited(), RateLimiter.unlimited(), -1, CacheOptions.disabled());
+
+    public static RouteOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public RouteOptions withStreaming(boolean streaming) {
+        return new RouteOptions(streaming, blocking, timeout, limiter, rateLimiter, compressionLevel, cache);
+    }
+
+    public RouteOptions withBlocking(boolean blocking) {
+        return new RouteOptions(streaming, blocking, timeout, limiter, rateLimiter, compressionLevel, cache);
+    }
+
+    public RouteOptions withTimeout(Duration timeout) {
+        return new RouteOptions(streaming, blocking, timeout, limiter, rateLimiter, compressionLevel, cache);
+    }
+
+    public RouteOptions withLimiter(ConcurrencyLimiter limiter) {
+        return new RouteOptions(streaming, blocking, timeout, limiter, rateLimiter, compressionLevel, cache);
+    }
+
+    public RouteOptions withRateLimiter(RateLimiter rateLimiter) {
+        return new RouteOptions(streaming, blocking, timeout, limiter, rateLimiter, compressionLevel, cache);
+    }
+
+    public RouteOptions withCompressionLevel(int compressionLevel) {
+        if (compressionLevel > 9) {
+            throw new IllegalArgumentException("Compression level must not exceed 9, but was " + compressionLevel);
+        }
+        return new RouteOptions(streaming, blocking, timeout, limiter, rateLimiter, compressionLevel, cache);
+    }
+
+    public RouteOptions withCache(CacheOptions cache) {
+        return new RouteOptions(streaming, blocking, timeout, limiter, rateLimiter, compressionLevel, cache);
+    }
+}
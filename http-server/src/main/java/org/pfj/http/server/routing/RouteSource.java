@@ -1,5 +1,7 @@
 package org.pfj.http.server.routing;
 
+import org.pfj.http.server.limit.RateLimiter;
+
 import java.util.stream.Stream;
 
 public interface RouteSource {
@@ -9,4 +11,12 @@ default RouteSource withPrefix(String prefix) {
         return () -> routes()
             .map(route -> (Route<?>) route.withPrefix(prefix));
     }
+
+    /**
+     * Apply rate limiter to all routes from this source. Routes share the limit.
+     */
+    default RouteSource withRateLimit(RateLimiter rateLimiter) {
+        return () -> routes()
+            .map(route -> (Route<?>) route.withRateLimit(rateLimiter));
+    }
 }
@@ -5,20 +5,32 @@
 import org.apache.logging.log4j.Logger;
 import org.pfj.lang.Option;
 
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.stream.Stream;
 
 import static org.pfj.lang.Option.option;
 
+/**
+ * Routing table which resolves routes using per-method compressed radix tree. Tree is built once, lookups do not allocate.
+ * <br/>
+ * Route paths may contain <code>{name}</code> placeholders (each matches single path segment) and trailing <code>*</code>
+ * wildcard. Static segments take precedence over placeholders. Routes without trailing placeholder match any tail of the
+ * path, in this case longest matching route is selected.
+ */
 public final class RoutingTable {
     private static final Logger log = LogManager.getLogger(RoutingTable.class);
 
-    private final Map<HttpMethod, TreeMap<String, Route<?>>> routes;
+    private final Map<HttpMethod, RouteNode> trees;
+    private final List<Route<?>> routes;
+    private final boolean hasStreamingRoutes;
 
-    private RoutingTable(Map<HttpMethod, TreeMap<String, Route<?>>> routes) {
+    private RoutingTable(Map<HttpMethod, RouteNode> trees, List<Route<?>> routes) {
+        this.trees = trees;
         this.routes = routes;
+        this.hasStreamingRoutes = routes.stream().anyMatch(route -> route.options().streaming());
     }
 
     public static RoutingTable with(RouteSource... routes) {
@@ -26,40 +38,34 @@ public static RoutingTable with(RouteSource... routes) {
     }
 
     public static RoutingTable with(Stream<RouteSource> routeStream) {
-        var routes = new HashMap<HttpMethod, TreeMap<String, Route<?>>>();
+        var trees = new HashMap<HttpMethod, RouteNode>();
+        var routes = routeStream.flatMap(RouteSource::routes)
+            .sorted(Comparator.comparing((Route<?> route) -> route.method().name()).thenComparing(Route::path))
+            .toList();
 
-        routeStream.flatMap(RouteSource::routes)
-            .forEach(route -> routes.compute(route.method(), (method, pathMap) -> collectRoutes(route, pathMap)));
-        return new RoutingTable(routes);
-    }
-
-    private static TreeMap<String, Route<?>> collectRoutes(Route<?> route, TreeMap<String, Route<?>> pathMap) {
-        var map = pathMap == null
-            ? new TreeMap<String, Route<?>>()
-            : pathMap;
+        routes.forEach(route -> trees.computeIfAbsent(route.method(), __ -> RouteNode.root()).insert(route));
 
-        map.put(route.path(), route);
-
-        return map;
+        return new RoutingTable(trees, routes);
     }
 
     public RoutingTable print() {
-        routes.forEach((method, endpoints) ->
-            endpoints.forEach((path, route) -> log.info("{}", route)));
+        routes.forEach(route -> log.info("{}", route));
         return this;
     }
 
-    public Option<Route<?>> findRoute(HttpMethod method, String inputPath) {
-        var path = inputPath + "/";
+    public List<Route<?>> routes() {
+        return routes;
+    }
 
-        return option(routes.get(method))
-            .flatMap(map -> option(map.floorEntry(path)))
-            .filter(routeEntry -> isSameOrStartOfPath(path, routeEntry.getKey()))
-            .map(Map.Entry::getValue);
+    public boolean hasStreamingRoutes() {
+        return hasStreamingRoutes;
     }
 
-    private boolean isSameOrStartOfPath(String inputPath, String routePath) {
-        return (inputPath.length() == routePath.length() && inputPath.equals(routePath))
-            || (inputPath.length() > routePath.length() && inputPath.charAt(routePath.length() - 1) == '/');
+    public Option<Route<?>> findRoute(HttpMethod method, String inputPath) {
+        var tree = trees.get(method);
+
+        return tree == null
+            ? Option.empty()
+            : option(tree.find(inputPath, 0));
     }
 }
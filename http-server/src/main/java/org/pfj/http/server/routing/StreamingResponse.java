@@ -0,0 +1,40 @@
+package org.pfj.http.server.routing;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.Iterator;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+
+/**
+ * Response which is sent to the client chunk by chunk (using chunked transfer encoding) rather than as a single
+ * buffer. Chunks are produced only when connection is writable, so response is never held in memory as a whole.
+ */
+public sealed interface StreamingResponse {
+    /**
+     * Response built from the buffers emitted by the publisher. Route content type is used. Ownership of the emitted
+     * buffers is transferred to the server.
+     */
+    static StreamingResponse chunks(Flow.Publisher<ByteBuf> publisher) {
+        return new Chunks(publisher);
+    }
+
+    /**
+     * Response where each element is serialized into separate line of JSON
+     * (<a href="http://ndjson.org/">NDJSON</a>).
+     */
+    static StreamingResponse jsonLines(Iterator<?> items) {
+        return new JsonLines(items, () -> {});
+    }
+
+    /**
+     * Same as {@link #jsonLines(Iterator)}, stream is closed once response is sent or connection is closed.
+     */
+    static StreamingResponse jsonLines(Stream<?> items) {
+        return new JsonLines(items.iterator(), items::close);
+    }
+
+    record Chunks(Flow.Publisher<ByteBuf> publisher) implements StreamingResponse {}
+
+    record JsonLines(Iterator<?> items, Runnable onClose) implements StreamingResponse {}
+}
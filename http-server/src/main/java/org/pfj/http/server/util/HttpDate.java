@@ -0,0 +1,41 @@
+package org.pfj.http.server.util;
+
+import io.netty.util.AsciiString;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Cached value for the <code>Date</code> response header.
+ * <br/>
+ * Header has one second resolution, so value is formatted at most once per second and shared by all event loops as
+ * pre-encoded {@link AsciiString}. Refresh is lock-free: concurrent callers may occasionally format the same value
+ * twice, but never observe a torn state.
+ */
+public final class HttpDate {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private static volatile Entry current = format(System.currentTimeMillis() / 1000);
+
+    private HttpDate() {
+    }
+
+    public static AsciiString now() {
+        var second = System.currentTimeMillis() / 1000;
+        var entry = current;
+
+        if (entry.second() != second) {
+            entry = format(second);
+            current = entry;
+        }
+
+        return entry.value();
+    }
+
+    private static Entry format(long second) {
+        return new Entry(second, AsciiString.cached(FORMATTER.format(Instant.ofEpochSecond(second))));
+    }
+
+    private static record Entry(long second, AsciiString value) {}
+}
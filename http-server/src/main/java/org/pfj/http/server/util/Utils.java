@@ -1,33 +1,118 @@
 package org.pfj.http.server.util;
 
 import java.util.function.Supplier;
-import java.util.regex.Pattern;
 
 public final class Utils {
     private Utils() {
     }
 
-    private static final Pattern MULTISLASH = Pattern.compile("/+");
+    private static final String ROOT = "/";
 
-    public static String normalize(String fullPath) {
+    /**
+     * Normalize request path: cut off query string, strip leading and trailing whitespaces, collapse repeated '/' and
+     * make sure that path starts and ends with '/'.
+     * <br/>
+     * Path is scanned once and if it is already normalized, then input instance is returned as is, without allocation.
+     */
+    public static String normalize(CharSequence fullPath) {
         if (fullPath == null) {
-            return "/";
+            return ROOT;
+        }
+
+        var length = fullPath.length();
+        var end = length;
+        var normalized = length > 0 && fullPath.charAt(0) == '/';
+        var previous = '\0';
+
+        for (int i = 0; i < length; i++) {
+            var c = fullPath.charAt(i);
+
+            if (c == '?') {
+                end = i;
+                normalized = false;
+                break;
+            }
+
+            if ((c == '/' && previous == '/') || Character.isWhitespace(c)) {
+                normalized = false;
+            }
+            previous = c;
+        }
+
+        if (normalized && previous == '/') {
+            return fullPath.toString();
         }
 
-        var query = fullPath.indexOf('?');
-        var path = query >= 0 ? fullPath.substring(0, query).strip() : fullPath.strip();
+        return rebuild(fullPath, end);
+    }
+
+    private static String rebuild(CharSequence fullPath, int end) {
+        var start = 0;
+
+        while (start < end && Character.isWhitespace(fullPath.charAt(start))) {
+            start++;
+        }
+
+        while (end > start && Character.isWhitespace(fullPath.charAt(end - 1))) {
+            end--;
+        }
+
+        var builder = new StringBuilder(end - start + 2).append('/');
+
+        for (int i = start; i < end; i++) {
+            var c = fullPath.charAt(i);
 
-        if (path.isBlank() || "/".equals(path)) {
-            return "/";
+            if (c != '/' || builder.charAt(builder.length() - 1) != '/') {
+                builder.append(c);
+            }
         }
 
-        var stringPath = MULTISLASH.matcher("/" + path).replaceAll("/");
-        var index = stringPath.lastIndexOf('/');
+        if (builder.charAt(builder.length() - 1) != '/') {
+            builder.append('/');
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Check if value of the <code>Accept-Encoding</code> header allows provided content coding, i.e. it is listed
+     * explicitly or matched by <code>*</code> and its quality value is not zero.
+     */
+    public static boolean acceptsEncoding(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        var wildcard = false;
+
+        for (var element : acceptEncoding.split(",")) {
+            var separator = element.indexOf(';');
+            var name = (separator < 0 ? element : element.substring(0, separator)).trim();
+            var accepted = separator < 0 || quality(element.substring(separator + 1)) > 0.0f;
+
+            if (name.equalsIgnoreCase(encoding)) {
+                return accepted;
+            }
+
+            if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+
+        return wildcard;
+    }
+
+    private static float quality(String parameters) {
+        var parameter = parameters.trim();
+
+        if (!parameter.startsWith("q=")) {
+            return 1.0f;
+        }
 
-        if (index < (stringPath.length() - 1)) {
-            return stringPath + "/";
-        } else {
-            return stringPath;
+        try {
+            return Float.parseFloat(parameter.substring(2).trim());
+        } catch (NumberFormatException e) {
+            return 0.0f;
         }
     }
 
@@ -0,0 +1,83 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.config.AccessLogConfig;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.error.WebError;
+import org.pfj.http.server.routing.RoutingTable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Result.failure;
+import static org.pfj.lang.Result.success;
+
+class AccessLogTest {
+    private static final RoutingTable ROUTING_TABLE = RoutingTable.with(
+        get("/hello").text().from(() -> success("Hello")),
+        get("/boom").text().from(() -> failure(WebError.INTERNAL_SERVER_ERROR))
+    );
+
+    @Test
+    void exchangesAreWrittenToLog() {
+        var lines = capture("access-test");
+
+        exchange(AccessLogConfig.defaults().withLoggerName("access-test"),
+                 "GET /hello?x=1 HTTP/1.1\r\n\r\nGET /missing HTTP/1.1\r\n\r\n");
+
+        assertEquals(2, lines.size(), lines.toString());
+        assertTrue(lines.get(0).matches("embedded \"GET /hello\\?x=1\" 200 5 [0-9.]+ms /hello/"), lines.get(0));
+        assertTrue(lines.get(1).startsWith("embedded \"GET /missing\" 404 "), lines.get(1));
+        assertTrue(lines.get(1).endsWith("ms -"), lines.get(1));
+    }
+
+    @Test
+    void serverErrorsAreWrittenRegardlessOfSampling() {
+        var lines = capture("access-sampled");
+
+        exchange(AccessLogConfig.defaults().withLoggerName("access-sampled").withSampleRate(Double.MIN_VALUE),
+                 "GET /hello HTTP/1.1\r\n\r\n".repeat(10) + "GET /boom HTTP/1.1\r\n\r\n");
+
+        assertEquals(1, lines.size(), lines.toString());
+        assertTrue(lines.get(0).contains("\"GET /boom\" 500 "), lines.get(0));
+    }
+
+    private static void exchange(AccessLogConfig config, String requests) {
+        var accessLog = new AccessLog(config).start();
+        var channel = new EmbeddedChannel(new WebServerInitializer(Configuration.builder().build(), ROUTING_TABLE,
+                                                                   new InFlightRequests(), null, accessLog, null));
+
+        channel.writeInbound(Unpooled.copiedBuffer(requests, StandardCharsets.US_ASCII));
+        channel.finishAndReleaseAll();
+
+        //Waits until all entries are written
+        accessLog.stop();
+    }
+
+    private static List<String> capture(String loggerName) {
+        var lines = new CopyOnWriteArrayList<String>();
+        var appender = new AbstractAppender(loggerName, null, null, true, Property.EMPTY_ARRAY) {
+            @Override
+            public void append(LogEvent event) {
+                lines.add(event.getMessage().getFormattedMessage());
+            }
+        };
+
+        appender.start();
+        ((Logger) ((LoggerContext) LogManager.getContext(false)).getLogger(loggerName)).addAppender(appender);
+
+        return lines;
+    }
+}
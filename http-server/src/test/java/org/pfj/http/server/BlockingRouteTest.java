@@ -0,0 +1,48 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.routing.RoutingTable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pfj.http.server.TestChannels.readAll;
+import static org.pfj.http.server.routing.Route.post;
+import static org.pfj.lang.Promise.success;
+
+class BlockingRouteTest {
+    @Test
+    void blockingHandlerIsInvokedOnBlockingExecutor() {
+        var tasks = new ArrayList<Runnable>();
+        var configuration = Configuration.builder().withBlockingExecutor(tasks::add).build();
+        var routingTable = RoutingTable.with(post("/echo").blocking().from(request -> success(request.bodyAsString())));
+        var channel = new EmbeddedChannel(new WebServerInitializer(configuration, routingTable));
+
+        channel.writeInbound(Unpooled.copiedBuffer("POST /echo HTTP/1.1\r\ncontent-length: 5\r\n\r\nHello", StandardCharsets.US_ASCII));
+
+        assertEquals(1, tasks.size());
+        assertNull(channel.readOutbound());
+
+        //Request body must remain available after event loop handler returns
+        tasks.forEach(Runnable::run);
+
+        var response = readAll(channel);
+
+        assertTrue(response.startsWith("HTTP/1.1 200 OK"), response);
+        assertTrue(response.endsWith("\r\n\r\nHello"), response);
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void defaultBlockingExecutorIsShared() {
+        assertSame(Configuration.allDefaults().blockingExecutor(), Configuration.builder().build().blockingExecutor());
+    }
+}
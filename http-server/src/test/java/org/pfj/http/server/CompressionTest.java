@@ -0,0 +1,126 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseDecoder;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.config.CompressionConfig;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.routing.PrecompressedResponse;
+import org.pfj.http.server.routing.RoutingTable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Result.success;
+
+class CompressionTest {
+    private static final String LARGE = "Lorem ipsum dolor sit amet. ".repeat(100);
+    private static final PrecompressedResponse PRECOMPRESSED = PrecompressedResponse.of(LARGE);
+    private static final RoutingTable ROUTING_TABLE = RoutingTable.with(
+        get("/large").text().from(() -> success(LARGE)),
+        get("/small").text().from(() -> success("Hello")),
+        get("/uncompressed").compression(0).text().from(() -> success(LARGE)),
+        get("/fast").compression(1).text().from(() -> success(LARGE)),
+        get("/precompressed").text().from(() -> success(PRECOMPRESSED))
+    );
+
+    @Test
+    void largeResponsesAreCompressed() throws IOException {
+        var responses = exchange("gzip, deflate", "/large", "/fast");
+
+        for (var response : responses) {
+            assertEquals("gzip", response.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+            assertEquals("accept-encoding", response.headers().get(HttpHeaderNames.VARY));
+            assertNull(response.headers().get(ResponseCompressor.LEVEL_HINT));
+            assertEquals(LARGE, gunzip(response.content()));
+        }
+
+        release(responses);
+    }
+
+    @Test
+    void smallAndExcludedResponsesAreNotCompressed() {
+        var responses = exchange("gzip, deflate", "/small", "/uncompressed");
+
+        assertEquals("Hello", responses.get(0).content().toString(StandardCharsets.UTF_8));
+        assertEquals(LARGE, responses.get(1).content().toString(StandardCharsets.UTF_8));
+
+        for (var response : responses) {
+            assertFalse(response.headers().contains(HttpHeaderNames.CONTENT_ENCODING));
+            assertNull(response.headers().get(ResponseCompressor.LEVEL_HINT));
+        }
+
+        release(responses);
+    }
+
+    @Test
+    void precompressedVariantIsSelectedByAcceptEncoding() throws IOException {
+        var compressed = exchange("gzip;q=0.5, br;q=0", "/precompressed");
+        var identity = exchange("gzip;q=0", "/precompressed");
+
+        assertEquals("gzip", compressed.get(0).headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        assertEquals(LARGE, gunzip(compressed.get(0).content()));
+        assertFalse(identity.get(0).headers().contains(HttpHeaderNames.CONTENT_ENCODING));
+        assertEquals(LARGE, identity.get(0).content().toString(StandardCharsets.UTF_8));
+
+        release(compressed);
+        release(identity);
+    }
+
+    private static List<FullHttpResponse> exchange(String acceptEncoding, String... paths) {
+        var configuration = Configuration.builder()
+            .withCompression(CompressionConfig.defaults())
+            .build();
+        var server = new EmbeddedChannel(new WebServerInitializer(configuration, ROUTING_TABLE));
+        var client = new EmbeddedChannel(new HttpResponseDecoder(), new HttpObjectAggregator(1024 * 1024));
+        var requests = new StringBuilder();
+
+        for (var path : paths) {
+            requests.append("GET ").append(path).append(" HTTP/1.1\r\nAccept-Encoding: ").append(acceptEncoding).append("\r\n\r\n");
+        }
+
+        server.writeInbound(Unpooled.copiedBuffer(requests, StandardCharsets.US_ASCII));
+        server.runPendingTasks();
+
+        Object message;
+        while ((message = server.readOutbound()) != null) {
+            client.writeInbound(message);
+        }
+
+        var responses = new ArrayList<FullHttpResponse>();
+        FullHttpResponse response;
+        while ((response = client.readInbound()) != null) {
+            responses.add(response);
+        }
+
+        assertEquals(paths.length, responses.size());
+
+        server.finishAndReleaseAll();
+        client.finishAndReleaseAll();
+
+        return responses;
+    }
+
+    private static String gunzip(ByteBuf content) throws IOException {
+        try (var input = new GZIPInputStream(new ByteBufInputStream(content.duplicate()))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void release(List<FullHttpResponse> responses) {
+        responses.forEach(FullHttpResponse::release);
+    }
+}
@@ -0,0 +1,121 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.limit.ConcurrencyLimiter;
+import org.pfj.http.server.routing.RoutingTable;
+import org.pfj.lang.Promise;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pfj.http.server.TestChannels.readAll;
+import static org.pfj.http.server.routing.Route.get;
+
+class ConcurrencyLimitTest {
+    private static final String REQUEST = "GET /slow HTTP/1.1\r\n\r\n";
+
+    @Test
+    void requestsAboveRouteLimitAreRejected() {
+        var pending = Promise.<String>promise();
+        var limiter = ConcurrencyLimiter.aimd(1, 1, 1, Duration.ofSeconds(1));
+        var routingTable = RoutingTable.with(get("/slow").text().concurrencyLimit(limiter).from(request -> pending));
+        var channel = new EmbeddedChannel(new WebServerInitializer(Configuration.builder().build(), routingTable));
+
+        channel.writeInbound(Unpooled.copiedBuffer(REQUEST + REQUEST, StandardCharsets.US_ASCII));
+
+        //Rejection is kept in order after response to the first request
+        assertNull(channel.readOutbound());
+        assertEquals(1, limiter.inFlight());
+
+        pending.succeed("done");
+
+        var response = readAll(channel);
+
+        assertTrue(response.startsWith("HTTP/1.1 200 OK"), response);
+        assertTrue(response.contains("HTTP/1.1 429 Too Many Requests"), response);
+        assertEquals(0, limiter.inFlight());
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void requestsAboveServerLimitAreRejected() {
+        var pending = Promise.<String>promise();
+        var limiter = ConcurrencyLimiter.aimd(1, 1, 1, Duration.ofSeconds(1));
+        var configuration = Configuration.builder().withConcurrencyLimit(limiter).build();
+        var routingTable = RoutingTable.with(get("/slow").text().from(request -> pending));
+        var channel = new EmbeddedChannel(new WebServerInitializer(configuration, routingTable));
+
+        channel.writeInbound(Unpooled.copiedBuffer(REQUEST + REQUEST, StandardCharsets.US_ASCII));
+        pending.succeed("done");
+
+        var response = readAll(channel);
+
+        assertTrue(response.contains("HTTP/1.1 503 Service Unavailable"), response);
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void permitIsHeldUntilHandlerIsCompletedEvenAfterDeadline() throws InterruptedException {
+        var pending = Promise.<String>promise();
+        var limiter = ConcurrencyLimiter.aimd(1, 1, 1, Duration.ofSeconds(1));
+        var routingTable = RoutingTable.with(
+            get("/slow").text().timeout(Duration.ofMillis(10)).concurrencyLimit(limiter).from(request -> pending));
+        var channel = new EmbeddedChannel(new WebServerInitializer(Configuration.builder().build(), routingTable));
+
+        channel.writeInbound(Unpooled.copiedBuffer(REQUEST, StandardCharsets.US_ASCII));
+
+        String response = "";
+
+        for (int i = 0; i < 100 && response.isEmpty(); i++) {
+            Thread.sleep(10);
+            channel.runPendingTasks();
+            response = readAll(channel);
+        }
+
+        assertTrue(response.startsWith("HTTP/1.1 504 Gateway Timeout"), response);
+        assertEquals(1, limiter.inFlight());
+
+        pending.succeed("done");
+
+        assertEquals(0, limiter.inFlight());
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void limitIsAdaptedToLatency() {
+        var limiter = ConcurrencyLimiter.aimd(10, 2, 20, Duration.ofMillis(100), 0.5);
+        var threshold = Duration.ofMillis(100).toNanos();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release(threshold / 2);
+        assertEquals(11, limiter.limit());
+
+        limiter.release(threshold * 2);
+        assertEquals(5, limiter.limit());
+
+        limiter.cancel();
+        assertEquals(5, limiter.limit());
+        assertEquals(7, limiter.inFlight());
+    }
+
+    @Test
+    void invalidLimitsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ConcurrencyLimiter.aimd(0, 1, 10, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> ConcurrencyLimiter.aimd(5, 1, 10, Duration.ofSeconds(1), 1.5));
+    }
+}
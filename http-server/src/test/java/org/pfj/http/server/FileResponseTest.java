@@ -0,0 +1,149 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.routing.RoutingTable;
+import org.pfj.lang.Result;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.pfj.http.server.routing.Route.get;
+
+class FileResponseTest {
+    private static final int IO_URING_PORT = 8077;
+
+    @TempDir
+    Path root;
+
+    @Test
+    void fileIsServed() throws IOException {
+        var response = request("GET /static/hello.txt HTTP/1.1\r\n\r\n");
+
+        assertTrue(response.startsWith("HTTP/1.1 200 OK"), response);
+        assertTrue(response.contains("content-type: text/plain; charset=UTF-8"), response);
+        assertTrue(response.contains("content-length: 11"), response);
+        assertTrue(response.endsWith("\r\n\r\nHello world"), response);
+    }
+
+    @Test
+    void notModifiedIsReturnedForMatchingEtag() throws IOException {
+        var etag = header(request("GET /static/hello.txt HTTP/1.1\r\n\r\n"), "etag");
+        var response = request("GET /static/hello.txt HTTP/1.1\r\nIf-None-Match: " + etag + "\r\n\r\n");
+
+        assertTrue(response.startsWith("HTTP/1.1 304 Not Modified"), response);
+        assertTrue(response.endsWith("\r\n\r\n"), response);
+    }
+
+    @Test
+    void rangeIsServed() throws IOException {
+        var response = request("GET /static/hello.txt HTTP/1.1\r\nRange: bytes=6-\r\n\r\n");
+
+        assertTrue(response.startsWith("HTTP/1.1 206 Partial Content"), response);
+        assertTrue(response.contains("content-range: bytes 6-10/11"), response);
+        assertTrue(response.endsWith("\r\n\r\nworld"), response);
+    }
+
+    @Test
+    void unsatisfiableRangeIsRejected() throws IOException {
+        var response = request("GET /static/hello.txt HTTP/1.1\r\nRange: bytes=20-\r\n\r\n");
+
+        assertTrue(response.startsWith("HTTP/1.1 416 Requested Range Not Satisfiable"), response);
+        assertTrue(response.contains("content-range: bytes */11"), response);
+    }
+
+    @Test
+    void filesOutsideOfRootAreNotServed() throws IOException {
+        assertTrue(request("GET /static/..%2Fsecret.txt HTTP/1.1\r\n\r\n").startsWith("HTTP/1.1 404 Not Found"));
+        assertTrue(request("GET /static/missing.txt HTTP/1.1\r\n\r\n").startsWith("HTTP/1.1 404 Not Found"));
+    }
+
+    @Test
+    void symbolicLinksLeadingOutsideOfRootAreNotServed() throws IOException {
+        var base = Files.createDirectories(root.resolve("base"));
+        Files.writeString(root.resolve("secret.txt"), "Secret");
+        Files.createSymbolicLink(base.resolve("link.txt"), root.resolve("secret.txt"));
+        Files.createSymbolicLink(base.resolve("hello-link.txt"), Path.of("hello.txt"));
+
+        assertTrue(request("GET /static/link.txt HTTP/1.1\r\n\r\n").startsWith("HTTP/1.1 404 Not Found"));
+        assertTrue(request("GET /static/hello-link.txt HTTP/1.1\r\n\r\n").endsWith("\r\n\r\nHello world"));
+    }
+
+    @Test
+    void fileIsServedOverIoUring() throws IOException, InterruptedException {
+        assumeTrue(IOUring.isAvailable(), "io_uring is not available");
+
+        var base = Files.createDirectories(root.resolve("base"));
+        Files.writeString(base.resolve("hello.txt"), "Hello world");
+
+        var configuration = Configuration.builder().withPort(IO_URING_PORT).withIoUring(true).build();
+        var serverPromise = WebServer.with(configuration).and(get("/static").files(base)).build().start();
+
+        try {
+            var request = HttpRequest.newBuilder(URI.create("http://localhost:" + IO_URING_PORT + "/static/hello.txt")).build();
+            var response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            assertEquals("Hello world", response.body());
+        } finally {
+            serverPromise.resolve(Result.success(null)).join();
+        }
+    }
+
+    private String request(String request) throws IOException {
+        var base = Files.createDirectories(root.resolve("base"));
+
+        //Files are created once per test, rewriting them would change modification time and ETag between requests
+        if (Files.notExists(base.resolve("hello.txt"))) {
+            Files.writeString(base.resolve("hello.txt"), "Hello world");
+            Files.writeString(root.resolve("secret.txt"), "Secret");
+        }
+
+        var routingTable = RoutingTable.with(get("/static").files(base));
+        var channel = new EmbeddedChannel(new WebServerInitializer(Configuration.allDefaults(), routingTable));
+        var output = new ByteArrayOutputStream();
+
+        channel.writeInbound(Unpooled.copiedBuffer(request, StandardCharsets.US_ASCII));
+
+        Object message;
+
+        while ((message = channel.readOutbound()) != null) {
+            if (message instanceof ByteBuf buffer) {
+                output.writeBytes(ByteBufUtil.getBytes(buffer));
+            } else if (message instanceof FileRegion region) {
+                region.transferTo(Channels.newChannel(output), 0);
+            }
+            ReferenceCountUtil.release(message);
+        }
+
+        channel.finishAndReleaseAll();
+        return output.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static String header(String response, String name) {
+        return response.lines()
+            .filter(line -> line.startsWith(name + ": "))
+            .map(line -> line.substring(name.length() + 2))
+            .findFirst()
+            .orElseThrow();
+    }
+}
@@ -0,0 +1,93 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.routing.RoutingTable;
+import org.pfj.lang.Promise;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Result.success;
+
+class GracefulShutdownTest {
+    private static final int PORT = 8074;
+
+    @Test
+    void inFlightRequestIsCompletedBeforeServerStops() throws Exception {
+        var received = new CountDownLatch(1);
+        var pending = Promise.<String>promise();
+        var server = WebServer.with(Configuration.builder().withPort(PORT).withDrainTimeout(Duration.ofSeconds(10)).build())
+            .and(get("/slow").text().from(request -> {
+                received.countDown();
+                return pending;
+            }))
+            .build();
+
+        server.start();
+
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/slow")).build();
+        var response = HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofString());
+
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+
+        var stopped = server.stop();
+
+        //New connections are not accepted anymore
+        assertThrows(IOException.class, () -> new Socket("localhost", PORT).close());
+        assertFalse(stopped.isDone());
+
+        pending.succeed("done");
+
+        assertEquals("done", response.get(5, TimeUnit.SECONDS).body());
+        assertEquals("close", response.get().headers().firstValue("connection").orElseThrow());
+        assertTrue(stopped.get(10, TimeUnit.SECONDS).isSuccess());
+    }
+
+    @Test
+    void parkedResponsesAreCompletedOnceConnectionIsClosed() throws InterruptedException {
+        try (var leaks = LeakReports.paranoid()) {
+            var inFlight = new InFlightRequests();
+            var pending = Promise.<String>promise();
+            var routingTable = RoutingTable.with(
+                get("/slow").text().from(request -> pending),
+                get("/fast").text().from(() -> success("fast"))
+            );
+            var initializer = new WebServerInitializer(Configuration.allDefaults(), routingTable, inFlight,
+                                                       null, null, null);
+            var channel = new EmbeddedChannel(initializer);
+
+            channel.writeInbound(Unpooled.copiedBuffer("GET /slow HTTP/1.1\r\n\r\nGET /fast HTTP/1.1\r\n\r\n",
+                                                       StandardCharsets.US_ASCII));
+            assertEquals(2, inFlight.count());
+
+            //Response to the second request waits for the first one, which may never be responded
+            channel.close();
+            assertEquals(1, inFlight.count());
+
+            pending.succeed("done");
+            assertEquals(0, inFlight.count());
+
+            channel.finishAndReleaseAll();
+
+            //Responses written after connection is closed must be released
+            assertEquals(List.of(), leaks.collect());
+        }
+    }
+}
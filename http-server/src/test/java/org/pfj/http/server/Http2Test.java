@@ -0,0 +1,256 @@
+package org.pfj.http.server;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.codec.http2.HttpConversionUtil;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.lang.Promise;
+import org.pfj.lang.Result;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Result.success;
+
+class Http2Test {
+    private static final int PORT = 8071;
+    private static final int SSL_PORT = 8076;
+    private static SelfSignedCertificate certificate;
+    private static Promise<Void> serverPromise;
+    private static Promise<Void> sslServerPromise;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        serverPromise = WebServer.with(Configuration.builder()
+                                           .withPort(PORT)
+                                           .withHttp2(true)
+                                           .withIdleTimeout(Duration.ofSeconds(1))
+                                           .build())
+            .and(
+                get("/hello").text().from(() -> success("Hello world!")),
+                get("/slow").text().from(request -> delayed("Done", Duration.ofMillis(2500)))
+            )
+            .build()
+            .start();
+
+        certificate = new SelfSignedCertificate("localhost");
+
+        var sslContext = SslContextBuilder.forServer(certificate.certificate(), certificate.privateKey())
+            .applicationProtocolConfig(new ApplicationProtocolConfig(
+                ApplicationProtocolConfig.Protocol.ALPN,
+                ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1))
+            .build();
+
+        sslServerPromise = WebServer.with(Configuration.builder()
+                                              .withPort(SSL_PORT)
+                                              .withHttp2(true)
+                                              .withSsl(sslContext)
+                                              .build())
+            .and(get("/hello").text().from(() -> success("Hello world!")))
+            .build()
+            .start();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        serverPromise.resolve(Result.success(null)).join();
+        sslServerPromise.resolve(Result.success(null)).join();
+        certificate.delete();
+    }
+
+    @Test
+    void h2cUpgradeIsAccepted() throws Exception {
+        var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+
+        for (int i = 0; i < 3; i++) {
+            var response = client.send(request("/hello"), HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            assertEquals(HttpClient.Version.HTTP_2, response.version());
+            assertEquals("Hello world!", response.body());
+            assertEquals("text/plain; charset=UTF-8", response.headers().firstValue("content-type").orElseThrow());
+        }
+    }
+
+    @Test
+    void http1IsServedAsBefore() throws Exception {
+        var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        var response = client.send(request("/hello"), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals(HttpClient.Version.HTTP_1_1, response.version());
+        assertEquals("Hello world!", response.body());
+    }
+
+    @Test
+    void h2cConnectionIsNotClosedWhileStreamIsInProgress() throws Exception {
+        var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+
+        //First request upgrades connection, second one is sent as a regular stream
+        assertEquals(HttpClient.Version.HTTP_2, client.send(request("/hello"), HttpResponse.BodyHandlers.ofString()).version());
+
+        var response = client.send(request("/slow"), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals(HttpClient.Version.HTTP_2, response.version());
+        assertEquals("Done", response.body());
+    }
+
+    @Test
+    void priorKnowledgeConnectionIsServed() throws Exception {
+        var group = new NioEventLoopGroup(1);
+
+        try {
+            var channel = connectWithPriorKnowledge(group);
+
+            for (int i = 0; i < 3; i++) {
+                var response = send(channel, "/hello").get(5, TimeUnit.SECONDS);
+
+                assertTrue(response.startsWith("200 "), response);
+                assertTrue(response.endsWith("\nHello world!"), response);
+            }
+
+            channel.close().sync();
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @Test
+    void idlePriorKnowledgeConnectionIsClosedOnceStreamsAreCompleted() throws Exception {
+        var group = new NioEventLoopGroup(1);
+
+        try {
+            var channel = connectWithPriorKnowledge(group);
+            var response = send(channel, "/slow").get(5, TimeUnit.SECONDS);
+
+            assertTrue(response.endsWith("\nDone"), response);
+            assertTrue(channel.closeFuture().await(3, TimeUnit.SECONDS));
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @Test
+    void h2IsNegotiatedViaAlpn() throws Exception {
+        var trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("server", certificate.cert());
+
+        var trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(trustStore);
+
+        var sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, trustManagers.getTrustManagers(), null);
+
+        var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).sslContext(sslContext).build();
+
+        for (int i = 0; i < 3; i++) {
+            var request = HttpRequest.newBuilder(URI.create("https://localhost:" + SSL_PORT + "/hello")).build();
+            var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            assertEquals(HttpClient.Version.HTTP_2, response.version());
+            assertEquals("Hello world!", response.body());
+        }
+    }
+
+    private static HttpRequest request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path)).build();
+    }
+
+    private static Promise<String> delayed(String value, Duration delay) {
+        var promise = Promise.<String>promise();
+
+        CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS)
+            .execute(() -> promise.succeed(value));
+
+        return promise;
+    }
+
+    //Client which starts HTTP/2 connection without upgrade
+    private static Channel connectWithPriorKnowledge(NioEventLoopGroup group) throws InterruptedException {
+        return new Bootstrap()
+            .group(group)
+            .channel(NioSocketChannel.class)
+            .handler(new ChannelInitializer<>() {
+                @Override
+                protected void initChannel(Channel channel) {
+                    channel.pipeline()
+                        .addLast(Http2FrameCodecBuilder.forClient().build())
+                        .addLast(new Http2MultiplexHandler(new ChannelInboundHandlerAdapter()));
+                }
+            })
+            .connect("localhost", PORT)
+            .sync()
+            .channel();
+    }
+
+    //Response is returned as status line followed by the body, separated with new line
+    private static CompletableFuture<String> send(Channel channel, String path) throws InterruptedException {
+        var response = new CompletableFuture<String>();
+        var stream = new Http2StreamChannelBootstrap(channel)
+            .handler(new ChannelInitializer<Http2StreamChannel>() {
+                @Override
+                protected void initChannel(Http2StreamChannel stream) {
+                    stream.pipeline()
+                        .addLast(new Http2StreamFrameToHttpObjectCodec(false))
+                        .addLast(new HttpObjectAggregator(65536))
+                        .addLast(new SimpleChannelInboundHandler<FullHttpResponse>() {
+                            @Override
+                            protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse message) {
+                                response.complete(message.status() + "\n" + message.content().toString(StandardCharsets.UTF_8));
+                            }
+                        });
+                }
+            })
+            .open()
+            .sync()
+            .getNow();
+
+        var request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, path);
+
+        request.headers().set(HttpConversionUtil.ExtensionHeaderNames.SCHEME.text(), "http");
+        stream.writeAndFlush(request);
+
+        return response;
+    }
+}
@@ -0,0 +1,62 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ResourceLeakDetector;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Collects buffer leaks reported by Netty leak detector. While active, every buffer is tracked. Leak detector of the
+ * buffers is created once per JVM, so reports are captured from its log rather than via custom detector factory.
+ */
+final class LeakReports implements AutoCloseable {
+    private final List<String> reports = new CopyOnWriteArrayList<>();
+    private final ResourceLeakDetector.Level previousLevel = ResourceLeakDetector.getLevel();
+    private final Logger logger = ((LoggerContext) LogManager.getContext(false)).getLogger(ResourceLeakDetector.class.getName());
+    private final AbstractAppender appender = new AbstractAppender("leak-reports", null, null, true, Property.EMPTY_ARRAY) {
+        @Override
+        public void append(LogEvent event) {
+            if (event.getLevel().isMoreSpecificThan(Level.ERROR)) {
+                reports.add(event.getMessage().getFormattedMessage());
+            }
+        }
+    };
+
+    private LeakReports() {
+        appender.start();
+        logger.addAppender(appender);
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+    }
+
+    static LeakReports paranoid() {
+        return new LeakReports();
+    }
+
+    /**
+     * Collect lost buffers and return leaks reported so far. Leaks are reported on allocations which follow garbage
+     * collection.
+     */
+    List<String> collect() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            ByteBufAllocator.DEFAULT.buffer(1).release();
+        }
+        return reports;
+    }
+
+    @Override
+    public void close() {
+        ResourceLeakDetector.setLevel(previousLevel);
+        logger.removeAppender(appender);
+        appender.stop();
+    }
+}
@@ -0,0 +1,55 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.metrics.ServerMetrics;
+import org.pfj.http.server.routing.RoutingTable;
+import org.pfj.lang.Promise;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Result.success;
+
+class MetricsTest {
+    @Test
+    void requestsAreAccountedPerRoute() {
+        var pending = Promise.<String>promise();
+        var routingTable = RoutingTable.with(
+            get("/hello").text().from(() -> success("Hello")),
+            get("/slow").text().from(request -> pending)
+        );
+        var metrics = ServerMetrics.create(routingTable);
+        var channel = new EmbeddedChannel(new WebServerInitializer(Configuration.builder().build(), routingTable,
+                                                                   new InFlightRequests(), metrics, null, null));
+
+        send(channel, "GET /hello HTTP/1.1\r\n\r\nGET /hello HTTP/1.1\r\n\r\nGET /missing HTTP/1.1\r\n\r\n");
+
+        var scrape = metrics.scrape();
+
+        assertTrue(scrape.contains("http_requests_total{method=\"GET\",route=\"/hello/\",code=\"200\"} 2\n"), scrape);
+        assertTrue(scrape.contains("http_requests_total{method=\"\",route=\"unmatched\",code=\"404\"} 1\n"), scrape);
+        assertTrue(scrape.contains("http_request_duration_seconds_count{method=\"GET\",route=\"/hello/\"} 2\n"), scrape);
+        assertTrue(scrape.contains("http_request_duration_seconds{method=\"GET\",route=\"/hello/\",quantile=\"0.99\"}"), scrape);
+
+        send(channel, "GET /slow HTTP/1.1\r\n\r\n");
+
+        scrape = metrics.scrape();
+        assertTrue(scrape.contains("http_requests_in_flight{method=\"GET\",route=\"/slow/\"} 1\n"), scrape);
+
+        pending.succeed("done");
+
+        scrape = metrics.scrape();
+        assertTrue(scrape.contains("http_requests_in_flight{method=\"GET\",route=\"/slow/\"} 0\n"), scrape);
+        assertTrue(scrape.contains("http_requests_total{method=\"GET\",route=\"/slow/\",code=\"200\"} 1\n"), scrape);
+
+        channel.finishAndReleaseAll();
+    }
+
+    private static void send(EmbeddedChannel channel, String requests) {
+        channel.writeInbound(Unpooled.copiedBuffer(requests, StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,69 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.routing.RoutingTable;
+import org.pfj.lang.Promise;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pfj.http.server.TestChannels.readAll;
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Result.success;
+
+class PipeliningTest {
+    @Test
+    void responsesAreWrittenInOrderOfRequests() {
+        var slow = Promise.<String>promise();
+        var routingTable = RoutingTable.with(
+            get("/slow").text().from(ctx -> slow),
+            get("/fast").text().from(() -> success("fast"))
+        );
+        var channel = new EmbeddedChannel(new WebServerInitializer(Configuration.allDefaults(), routingTable));
+
+        channel.writeInbound(Unpooled.copiedBuffer("GET /slow HTTP/1.1\r\n\r\nGET /fast HTTP/1.1\r\n\r\n", StandardCharsets.US_ASCII));
+        channel.runPendingTasks();
+
+        assertEquals("", readAll(channel));
+
+        slow.resolve(success("slow"));
+        channel.runPendingTasks();
+
+        var output = readAll(channel);
+        var slowPos = output.indexOf("\r\n\r\nslow");
+        var fastPos = output.indexOf("\r\n\r\nfast");
+
+        assertTrue(slowPos > 0, output);
+        assertTrue(fastPos > slowPos, output);
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void failedWriterDoesNotBlockParkedWriters() {
+        var channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        var inFlight = new InFlightRequests();
+        var sequencer = new ResponseSequencer(channel.pipeline().firstContext(), inFlight);
+        var parkedRun = new AtomicBoolean();
+
+        var first = sequencer.next();
+        var second = sequencer.next();
+
+        sequencer.write(second, () -> parkedRun.set(true));
+        sequencer.write(first, () -> {
+            throw new IllegalStateException("Serialization failed");
+        });
+
+        assertTrue(parkedRun.get());
+        assertTrue(sequencer.idle());
+        assertEquals(0, inFlight.count());
+        assertFalse(channel.isOpen());
+    }
+}
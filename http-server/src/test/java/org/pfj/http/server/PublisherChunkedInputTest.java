@@ -0,0 +1,48 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PublisherChunkedInputTest {
+    @Test
+    void itemsAreReleasedOnceInputIsClosed() {
+        var channel = new EmbeddedChannel(new ChunkedWriteHandler());
+        var subscriber = new AtomicReference<Flow.Subscriber<? super ByteBuf>>();
+        var cancelled = new AtomicBoolean();
+        var input = PublisherChunkedInput.subscribe(channel.pipeline().firstContext(), subscriber::set);
+
+        subscriber.get().onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+                cancelled.set(true);
+            }
+        });
+
+        var queued = Unpooled.buffer().writeByte(1);
+        var late = Unpooled.buffer().writeByte(2);
+
+        subscriber.get().onNext(queued);
+        input.close();
+        subscriber.get().onNext(late);
+
+        assertTrue(cancelled.get());
+        assertEquals(0, queued.refCnt());
+        assertEquals(0, late.refCnt());
+
+        channel.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,73 @@
+package org.pfj.http.server;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.limit.RateLimiter;
+import org.pfj.http.server.routing.Route;
+import org.pfj.http.server.routing.RoutingTable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pfj.http.server.TestChannels.exchange;
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Result.success;
+
+class RateLimitTest {
+    @Test
+    void requestsAboveRateAreRejectedPerKey() {
+        var limiter = RateLimiter.perHeader("X-Api-Key", 0.1, 2);
+        var routingTable = RoutingTable.with(
+            Route.from("/api",
+                get("/one").text().from(() -> success("one")),
+                get("/two").text().from(() -> success("two"))
+            ).withRateLimit(limiter)
+        );
+        var channel = new EmbeddedChannel(new WebServerInitializer(Configuration.builder().build(), routingTable));
+
+        var response = exchange(channel,
+            request("/api/one", "first") + request("/api/two", "first") + request("/api/one", "first") + request("/api/one", "second"));
+
+        var parts = response.split("HTTP/1.1 ");
+
+        assertEquals(5, parts.length, response);
+        assertTrue(parts[1].startsWith("200"), response);
+        assertTrue(parts[2].startsWith("200"), response);
+        assertTrue(parts[3].startsWith("429"), response);
+        assertTrue(parts[3].contains("retry-after: 10"), response);
+        assertTrue(parts[4].startsWith("200"), response);
+
+        var stats = limiter.stats();
+
+        assertEquals(3, stats.permitted());
+        assertEquals(1, stats.limited());
+        assertEquals(1, stats.limitedKeys());
+        assertEquals(2, stats.trackedKeys());
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void numberOfTrackedKeysIsBounded() {
+        var limiter = RateLimiter.tokenBucket((channel, request) -> request.uri(), 0.1, 1, 16);
+        var channel = new EmbeddedChannel();
+
+        for (int i = 0; i < 1000; i++) {
+            var request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/" + i);
+
+            assertEquals(0, limiter.tryAcquire(channel, request));
+        }
+
+        var stats = limiter.stats();
+
+        assertTrue(stats.trackedKeys() <= 16, stats.toString());
+        assertEquals(1000 - stats.trackedKeys(), stats.evictedKeys());
+    }
+
+    private static String request(String path, String key) {
+        return "GET " + path + " HTTP/1.1\r\nX-Api-Key: " + key + "\r\n\r\n";
+    }
+}
@@ -0,0 +1,99 @@
+package org.pfj.http.server;
+
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.lang.Promise;
+import org.pfj.lang.Result;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Result.success;
+
+class ReactorConfigTest {
+    private static final int PORT = 8072;
+    private static Promise<Void> serverPromise;
+
+    @BeforeAll
+    static void startServer() {
+        var configuration = Configuration.builder()
+            .withPort(PORT)
+            .withWorkerThreads(2)
+            .withListeners(2)
+            .withThreadFactory(new DefaultThreadFactory("custom-worker"))
+            .withBacklog(128)
+            .withWriteBufferWaterMark(new WriteBufferWaterMark(8 * 1024, 32 * 1024))
+            .build();
+
+        serverPromise = WebServer.with(configuration)
+            .and(get("/thread").text().from(() -> success(Thread.currentThread().getName())))
+            .build()
+            .start();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        serverPromise.resolve(Result.success(null)).join();
+    }
+
+    @Test
+    void requestsAreHandledByConfiguredWorkers() throws IOException, InterruptedException {
+        var client = HttpClient.newHttpClient();
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/thread")).build();
+
+        for (int i = 0; i < 4; i++) {
+            var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            assertTrue(response.body().startsWith("custom-worker"), response.body());
+        }
+    }
+
+    //Falls back to epoll if io_uring is not supported by kernel
+    @Test
+    void ioUringTransportServesRequests() throws IOException, InterruptedException {
+        var port = PORT + 1;
+        var serverPromise = WebServer.with(Configuration.builder().withPort(port).withIoUring(true).withListeners(2).build())
+            .and(get("/hello").text().from(() -> success("Hello world!")))
+            .build()
+            .start();
+
+        try {
+            var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/hello")).build();
+            var response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            assertEquals("Hello world!", response.body());
+        } finally {
+            serverPromise.resolve(Result.success(null)).join();
+        }
+    }
+
+    @Test
+    void failedBindStopsServer() throws IOException {
+        var port = PORT + 6;
+
+        try (var ignored = new ServerSocket(port)) {
+            var server = WebServer.with(Configuration.builder().withPort(port).withListeners(2).build())
+                .and(get("/hello").text().from(() -> success("Hello world!")))
+                .build();
+
+            var result = server.start().join();
+
+            assertTrue(result.isFailure(), result.toString());
+            //Event loop groups are shut down as well
+            assertTrue(server.stop().join().isSuccess());
+        }
+    }
+}
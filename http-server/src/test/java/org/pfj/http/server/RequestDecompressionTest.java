@@ -0,0 +1,148 @@
+package org.pfj.http.server;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.routing.RoutingTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pfj.http.server.TestChannels.readAll;
+import static org.pfj.http.server.routing.Route.post;
+import static org.pfj.lang.Promise.promise;
+
+class RequestDecompressionTest {
+    private static final RoutingTable ROUTING_TABLE = RoutingTable.with(
+        post("/echo").text().from(request -> promise(request.fromJson(new TypeReference<Map<String, String>>() {})
+                                                         .map(value -> value.get("name"))))
+    );
+
+    @Test
+    void compressedBodyIsDecompressed() throws IOException {
+        var channel = channel();
+
+        send(channel, "gzip", gzip("{\"name\":\"" + "x".repeat(10_000) + "\"}"));
+
+        var output = readAll(channel);
+
+        assertTrue(output.startsWith("HTTP/1.1 200 OK"), output);
+        assertTrue(output.endsWith("\r\n\r\n" + "x".repeat(10_000)), output);
+        assertTrue(channel.isActive());
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void rawDeflateBodyIsDecompressed() throws IOException {
+        var channel = channel();
+
+        send(channel, "deflate", deflate("{\"name\":\"raw\"}", true));
+
+        var output = readAll(channel);
+
+        assertTrue(output.startsWith("HTTP/1.1 200 OK"), output);
+        assertTrue(output.endsWith("\r\n\r\nraw"), output);
+
+        send(channel, "deflate", deflate("{\"name\":\"zlib\"}", false));
+
+        output = readAll(channel);
+
+        assertTrue(output.startsWith("HTTP/1.1 200 OK"), output);
+        assertTrue(output.endsWith("\r\n\r\nzlib"), output);
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void decompressedSizeIsLimited() throws IOException {
+        var channel = channel();
+        var random = new Random(42);
+        var content = new StringBuilder();
+
+        while (content.length() < 256 * 1024) {
+            content.append(Long.toString(random.nextLong(), 36));
+        }
+
+        send(channel, "gzip", gzip(content.toString()));
+
+        var output = readAll(channel);
+
+        assertTrue(output.startsWith("HTTP/1.1 413 Request Entity Too Large"), output);
+        assertFalse(channel.isActive());
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void highlyCompressedChunkIsNotExpanded() throws IOException {
+        var channel = channel();
+
+        send(channel, "gzip", gzip(" ".repeat(16 * 1024 * 1024)));
+
+        assertEquals("", readAll(channel));
+        assertFalse(channel.isActive());
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void unsupportedEncodingIsRejected() {
+        var channel = channel();
+
+        send(channel, "zstd", "{}".getBytes(StandardCharsets.UTF_8));
+
+        var output = readAll(channel);
+
+        assertTrue(output.startsWith("HTTP/1.1 415 Unsupported Media Type"), output);
+        assertTrue(output.contains("accept-encoding: gzip, deflate"), output);
+
+        channel.finishAndReleaseAll();
+    }
+
+    private static EmbeddedChannel channel() {
+        var configuration = Configuration.builder()
+            .withRequestDecompression(true)
+            .withMaxContentLen(64 * 1024)
+            .build();
+
+        return new EmbeddedChannel(new WebServerInitializer(configuration, ROUTING_TABLE));
+    }
+
+    private static void send(EmbeddedChannel channel, String encoding, byte[] body) {
+        var headers = "POST /echo HTTP/1.1\r\nContent-Encoding: " + encoding + "\r\nContent-Length: " + body.length + "\r\n\r\n";
+
+        channel.writeInbound(Unpooled.wrappedBuffer(headers.getBytes(StandardCharsets.US_ASCII), body));
+        channel.runPendingTasks();
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        var output = new ByteArrayOutputStream();
+
+        try (var gzip = new GZIPOutputStream(output)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return output.toByteArray();
+    }
+
+    //Some clients send deflate content without zlib header, so both forms should be accepted
+    private static byte[] deflate(String content, boolean nowrap) throws IOException {
+        var output = new ByteArrayOutputStream();
+
+        try (var deflate = new DeflaterOutputStream(output, new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap))) {
+            deflate.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return output.toByteArray();
+    }
+}
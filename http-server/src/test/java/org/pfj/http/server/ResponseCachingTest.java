@@ -0,0 +1,83 @@
+package org.pfj.http.server;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.cache.ResponseCache;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.http.server.config.ResponseCacheConfig;
+import org.pfj.http.server.metrics.ServerMetrics;
+import org.pfj.http.server.routing.CacheOptions;
+import org.pfj.http.server.routing.RoutingTable;
+import org.pfj.lang.Option;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pfj.http.server.TestChannels.exchange;
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.http.server.routing.Route.post;
+import static org.pfj.lang.Result.success;
+
+class ResponseCachingTest {
+    private final AtomicInteger invocations = new AtomicInteger();
+    private final RoutingTable routingTable = RoutingTable.with(
+        get("/items").json()
+            .cache(CacheOptions.ttl(Duration.ofMinutes(1)).varyByQuery("page"))
+            .from(() -> success(Map.of("invocation", invocations.incrementAndGet())))
+    );
+
+    @Test
+    void cachedResponsesSkipHandler() {
+        var cache = ResponseCache.create(ResponseCacheConfig.defaults());
+        var metrics = ServerMetrics.create(routingTable, Option.present(cache));
+        var channel = new EmbeddedChannel(new WebServerInitializer(Configuration.builder().build(), routingTable,
+                                                                   new InFlightRequests(), metrics, null, cache));
+
+        var first = exchange(channel, "GET /items?page=1 HTTP/1.1\r\n\r\n");
+        var second = exchange(channel, "GET /items?page=1&sort=name HTTP/1.1\r\n\r\n");
+        var third = exchange(channel, "GET /items?page=2 HTTP/1.1\r\n\r\n");
+
+        assertEquals(2, invocations.get());
+        assertTrue(first.startsWith("HTTP/1.1 200 OK"), first);
+        assertTrue(first.contains("content-type: application/json"), first);
+        assertTrue(first.endsWith("{\"invocation\":1}"), first);
+        assertEquals(first.replaceAll("date: .*\r\n", ""), second.replaceAll("date: .*\r\n", ""));
+        assertTrue(third.endsWith("{\"invocation\":2}"), third);
+
+        var scrape = metrics.scrape();
+
+        assertTrue(scrape.contains("http_response_cache_requests_total{result=\"hit\"} 1\n"), scrape);
+        assertTrue(scrape.contains("http_response_cache_requests_total{result=\"miss\"} 2\n"), scrape);
+        assertTrue(scrape.contains("http_response_cache_entries 2\n"), scrape);
+
+        assertEquals(2, cache.invalidate("/items/"));
+
+        var fourth = exchange(channel, "GET /items?page=1 HTTP/1.1\r\n\r\n");
+
+        assertEquals(3, invocations.get());
+        assertTrue(fourth.endsWith("{\"invocation\":3}"), fourth);
+
+        channel.finishAndReleaseAll();
+        cache.clear();
+    }
+
+    @Test
+    void routesAreNotCachedIfCacheIsDisabled() {
+        var channel = new EmbeddedChannel(new WebServerInitializer(Configuration.builder().build(), routingTable));
+
+        exchange(channel, "GET /items?page=1 HTTP/1.1\r\n\r\nGET /items?page=1 HTTP/1.1\r\n\r\n");
+
+        assertEquals(2, invocations.get());
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void onlyGetRoutesCanBeCached() {
+        assertThrows(IllegalArgumentException.class, () -> post("/items").json().cache(CacheOptions.ttl(Duration.ofMinutes(1))));
+    }
+}
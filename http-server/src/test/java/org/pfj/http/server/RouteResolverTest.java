@@ -0,0 +1,38 @@
+package org.pfj.http.server;
+
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.routing.RoutingTable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Result.success;
+
+class RouteResolverTest {
+    private final RouteResolver resolver = new RouteResolver(RoutingTable.with(
+        get("/one").text().from(() -> success("one"))
+    ));
+
+    @Test
+    void resultIsReusedForSameMethodAndUri() {
+        var path = resolver.resolve(request(HttpMethod.GET, "/one?x=1")).path();
+
+        assertEquals("/one/", path);
+        assertTrue(resolver.route().isPresent());
+        assertSame(path, resolver.resolve(request(HttpMethod.GET, "/one?x=1")).path());
+
+        assertNotSame(path, resolver.resolve(request(HttpMethod.GET, "/one?x=2")).path());
+        assertTrue(resolver.resolve(request(HttpMethod.POST, "/one?x=2")).route().isEmpty());
+        assertTrue(resolver.resolve(request(HttpMethod.GET, "/two")).route().isEmpty());
+    }
+
+    private static HttpRequest request(HttpMethod method, String uri) {
+        return new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, uri);
+    }
+}
@@ -0,0 +1,40 @@
+package org.pfj.http.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers for tests which talk to the server pipeline via {@link EmbeddedChannel}.
+ */
+final class TestChannels {
+    private TestChannels() {
+    }
+
+    /**
+     * Write raw requests into the channel and return everything written in response.
+     */
+    static String exchange(EmbeddedChannel channel, String requests) {
+        channel.writeInbound(Unpooled.copiedBuffer(requests, StandardCharsets.US_ASCII));
+        return readAll(channel);
+    }
+
+    /**
+     * Drain outbound messages of the channel. Buffers are decoded as UTF-8, all messages are released.
+     */
+    static String readAll(EmbeddedChannel channel) {
+        var output = new StringBuilder();
+        Object message;
+
+        while ((message = channel.readOutbound()) != null) {
+            if (message instanceof ByteBuf buffer) {
+                output.append(buffer.toString(StandardCharsets.UTF_8));
+            }
+            ReferenceCountUtil.release(message);
+        }
+        return output.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package org.pfj.http.server;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.config.Configuration;
+import org.pfj.lang.Promise;
+import org.pfj.lang.Result;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pfj.http.server.routing.Route.get;
+import static org.pfj.lang.Promise.success;
+
+class TimeoutTest {
+    private static final int PORT = 8075;
+    private static Promise<Void> serverPromise;
+
+    @BeforeAll
+    static void startServer() {
+        var configuration = Configuration.builder()
+            .withPort(PORT)
+            .withIdleTimeout(Duration.ofMillis(200))
+            .withRequestTimeout(Duration.ofSeconds(10))
+            .build();
+
+        serverPromise = WebServer.with(configuration)
+            .and(
+                get("/never").timeout(Duration.ofMillis(100)).from(request -> Promise.promise()),
+                get("/remaining").from(request -> success(request.remainingTime().map(Duration::toMillis).or(-1L)))
+            )
+            .build()
+            .start();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        serverPromise.resolve(Result.success(null)).join();
+    }
+
+    @Test
+    void handlerWhichDoesNotCompleteInTimeIsFailed() throws IOException, InterruptedException {
+        var response = send("/never");
+
+        assertEquals(504, response.statusCode());
+    }
+
+    @Test
+    void deadlineIsExposedToHandler() throws IOException, InterruptedException {
+        var remaining = Long.parseLong(send("/remaining").body());
+
+        assertTrue(remaining > 5_000 && remaining <= 10_000, Long.toString(remaining));
+    }
+
+    @Test
+    void idleConnectionIsClosed() throws IOException {
+        try (var socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5_000);
+
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    private static HttpResponse<String> send(String path) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + path)).build();
+
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
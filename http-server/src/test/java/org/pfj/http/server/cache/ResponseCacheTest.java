@@ -0,0 +1,136 @@
+package org.pfj.http.server.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.Test;
+import org.pfj.http.server.config.ResponseCacheConfig;
+import org.pfj.http.server.routing.CacheOptions;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCacheTest {
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    @Test
+    void popularEntriesSurviveScan() {
+        var cache = ResponseCache.create(new ResponseCacheConfig(100 * 100, 100));
+
+        for (int i = 0; i < 10; i++) {
+            put(cache, "/hot/" + i, 0);
+        }
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10; i++) {
+                cache.get("/hot/" + i, 0).whenPresent(ByteBuf::release);
+            }
+        }
+
+        for (int i = 0; i < 200; i++) {
+            put(cache, "/cold/" + i, 0);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(cache.get("/hot/" + i, 0).whenPresent(ByteBuf::release).isPresent(), "/hot/" + i);
+        }
+
+        var stats = cache.stats();
+
+        assertTrue(stats.bytes() <= 100 * 100, stats.toString());
+        assertEquals(stats.entries() * 100, stats.bytes());
+        assertTrue(stats.evictions() >= 110, stats.toString());
+
+        cache.clear();
+
+        assertEquals(0, cache.stats().bytes());
+    }
+
+    @Test
+    void expiredEntriesAreNotReturned() {
+        var cache = ResponseCache.create(ResponseCacheConfig.defaults());
+
+        put(cache, "/items/", 0);
+
+        assertTrue(cache.get("/items/", TTL.toNanos() - 1).whenPresent(ByteBuf::release).isPresent());
+        assertTrue(cache.get("/items/", TTL.toNanos()).isEmpty());
+
+        var stats = cache.stats();
+
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.evictions());
+        assertEquals(0, stats.entries());
+        assertEquals(0, stats.bytes());
+    }
+
+    @Test
+    void entriesAreInvalidatedByPrefix() {
+        var cache = ResponseCache.create(ResponseCacheConfig.defaults());
+
+        put(cache, "/users/1/", 0);
+        put(cache, "/users/1/?page=2", 0);
+        put(cache, "/users/10/", 0);
+        put(cache, "/items/", 0);
+
+        assertEquals(2, cache.invalidate("/users/1/"));
+        assertTrue(cache.get("/users/1/?page=2", 0).isEmpty());
+        assertTrue(cache.get("/users/10/", 0).whenPresent(ByteBuf::release).isPresent());
+        assertEquals(2, cache.stats().entries());
+
+        cache.clear();
+
+        assertEquals(0, cache.stats().entries());
+        assertEquals(0, cache.stats().bytes());
+    }
+
+    @Test
+    void returnedBufferOutlivesEntry() {
+        var cache = ResponseCache.create(ResponseCacheConfig.defaults());
+        var content = Unpooled.copiedBuffer("cached", StandardCharsets.UTF_8);
+        var response = cache.put("/items/", content, TTL);
+        var hit = cache.get("/items/").or(Unpooled.EMPTY_BUFFER);
+
+        assertEquals(0, content.refCnt());
+
+        cache.clear();
+
+        assertEquals("cached", response.toString(StandardCharsets.UTF_8));
+        assertEquals("cached", hit.toString(StandardCharsets.UTF_8));
+        assertFalse(response.release());
+        assertTrue(hit.release());
+    }
+
+    @Test
+    void oversizedContentIsNotCached() {
+        var cache = ResponseCache.create(new ResponseCacheConfig(1024, 4));
+        var content = Unpooled.copiedBuffer("too long", StandardCharsets.UTF_8);
+
+        assertSame(content, cache.put("/items/", content, TTL));
+        assertEquals(0, cache.stats().entries());
+
+        content.release();
+    }
+
+    @Test
+    void keyContainsSelectedParametersAndHeaders() {
+        var options = CacheOptions.ttl(TTL).varyByQuery("page", "size").varyByHeader("Accept-Language");
+        var request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/items?sort=name&size=10&page=a%20b");
+
+        request.headers().set("Accept-Language", "en");
+
+        assertEquals("/items/?page=a+b&size=10#accept-language=en", ResponseCache.key(options, "/items/", request));
+        assertEquals("/items/", ResponseCache.key(CacheOptions.ttl(TTL), "/items/", request));
+    }
+
+    private static void put(ResponseCache cache, String key, long now) {
+        cache.put(key, Unpooled.wrappedBuffer(new byte[100]), TTL, now).release();
+    }
+}
@@ -0,0 +1,66 @@
+package org.pfj.http.server.config.serialization;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DefaultSerializerTest {
+    private static final TypeReference<Map<String, String>> MAP_TYPE = new TypeReference<>() {};
+    private static final byte[] JSON = "{\"key\":\"value\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final Serializer serializer = DefaultSerializer.withDefault();
+
+    @Test
+    void heapBufferIsDeserialized() {
+        var buffer = Unpooled.buffer().writeBytes("xx".getBytes(StandardCharsets.UTF_8)).writeBytes(JSON);
+
+        buffer.skipBytes(2);
+        check(buffer);
+    }
+
+    @Test
+    void directBufferIsDeserialized() {
+        var buffer = Unpooled.directBuffer().writeBytes(JSON);
+
+        check(buffer);
+        buffer.release();
+    }
+
+    @Test
+    void compositeBufferIsDeserialized() {
+        var buffer = Unpooled.compositeBuffer()
+            .addComponent(true, Unpooled.directBuffer().writeBytes(JSON, 0, 5))
+            .addComponent(true, Unpooled.wrappedBuffer(JSON, 5, JSON.length - 5));
+
+        check(buffer);
+        buffer.release();
+    }
+
+    @Test
+    void valueIsSerializedIntoAllocatedBuffer() {
+        serializer.serialize(Map.of("key", "value"), PooledByteBufAllocator.DEFAULT)
+            .onFailureDo(() -> { throw new AssertionError(); })
+            .onSuccess(buffer -> {
+                assertEquals(JSON.length, buffer.readableBytes());
+                assertEquals(new String(JSON, StandardCharsets.UTF_8), buffer.toString(StandardCharsets.UTF_8));
+                buffer.release();
+            });
+    }
+
+    private void check(ByteBuf buffer) {
+        var readerIndex = buffer.readerIndex();
+
+        serializer.deserialize(buffer, MAP_TYPE)
+            .onFailureDo(() -> { throw new AssertionError(); })
+            .onSuccess(value -> assertEquals(Map.of("key", "value"), value));
+
+        assertEquals(readerIndex, buffer.readerIndex());
+    }
+}
@@ -7,10 +7,13 @@
 
 import io.netty.handler.codec.http.HttpMethod;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.pfj.http.server.routing.Route.from;
+import static org.pfj.http.server.routing.Route.get;
 
 class RoutingTableTest {
     private RoutingTable table = RoutingTable.with(
@@ -38,6 +41,48 @@ void notExistingRouteIsReturnedProperly() {
         assertTrue(table.findRoute(HttpMethod.GET, "/one3").isEmpty());
     }
 
+    @Test
+    void longestMatchingPrefixIsSelected() {
+        var table = RoutingTable.with(
+            get("/a").from(() -> Causes.cause("a").result()),
+            get("/a/b").from(() -> Causes.cause("a/b").result())
+        );
+
+        assertEquals("/a/", table.findRoute(HttpMethod.GET, "/a/c/").map(Route::path).or(""));
+        assertEquals("/a/b/", table.findRoute(HttpMethod.GET, "/a/b/c/").map(Route::path).or(""));
+        assertTrue(table.findRoute(HttpMethod.POST, "/a/").isEmpty());
+    }
+
+    @Test
+    void placeholdersAndWildcardsAreMatched() {
+        var table = RoutingTable.with(
+            get("/users/{id}").from(() -> Causes.cause("user").result()),
+            get("/users/{id}/posts/{post}").from(() -> Causes.cause("post").result()),
+            get("/users/me").from(() -> Causes.cause("me").result()),
+            get("/static/*").from(() -> Causes.cause("static").result())
+        );
+
+        assertEquals("/users/{id}/", table.findRoute(HttpMethod.GET, "/users/42/").map(Route::path).or(""));
+        assertEquals("/users/{id}/", table.findRoute(HttpMethod.GET, "/users/42").map(Route::path).or(""));
+        assertEquals("/users/me/", table.findRoute(HttpMethod.GET, "/users/me/").map(Route::path).or(""));
+        assertEquals("/users/{id}/posts/{post}/", table.findRoute(HttpMethod.GET, "/users/42/posts/7/").map(Route::path).or(""));
+        assertEquals("/static/*/", table.findRoute(HttpMethod.GET, "/static/css/main.css/").map(Route::path).or(""));
+        assertTrue(table.findRoute(HttpMethod.GET, "/users/").isEmpty());
+    }
+
+    @Test
+    void pathParamsAreExtracted() {
+        var route = get("/users/{id}/posts/{post}").from(() -> Causes.cause("post").result());
+        var wildcard = get("/static/*").from(() -> Causes.cause("static").result());
+        var plain = get("/list").from(() -> Causes.cause("list").result());
+
+        assertEquals(List.of("42", "7"), route.pathParams("/users/42/posts/7/"));
+        assertEquals(List.of("42", "7", "extra"), route.pathParams("/users/42/posts/7/extra/"));
+        assertEquals(List.of("css", "main.css"), wildcard.pathParams("/static/css/main.css/"));
+        assertEquals(List.of(), plain.pathParams("/list/"));
+        assertEquals(List.of("a", "b"), plain.pathParams("/list/a/b/"));
+    }
+
     private void checkSingle(String path) {
         table.findRoute(HttpMethod.GET, path)
             .whenEmpty(Assertions::fail)
@@ -0,0 +1,20 @@
+package org.pfj.http.server.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpDateTest {
+    @Test
+    void dateIsFormattedAccordingToRfc1123() {
+        var date = ZonedDateTime.parse(HttpDate.now(), DateTimeFormatter.RFC_1123_DATE_TIME);
+        var difference = Duration.between(date.toInstant(), Instant.now()).abs();
+
+        assertTrue(difference.getSeconds() <= 1);
+    }
+}
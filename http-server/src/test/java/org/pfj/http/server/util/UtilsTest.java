@@ -6,6 +6,7 @@
 import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.pfj.http.server.util.Utils.lazy;
 import static org.pfj.http.server.util.Utils.value;
 
@@ -27,6 +28,20 @@ void normalizeProperlyHandlesPaths() {
         assertEquals("/", Utils.normalize("//"));
         assertEquals("/", Utils.normalize("//?"));
         assertEquals("/", Utils.normalize("//?//"));
+        assertEquals("/", Utils.normalize(" / "));
+        assertEquals("/one/", Utils.normalize("one"));
+        assertEquals("/one/", Utils.normalize("/one"));
+        assertEquals("/one/two/", Utils.normalize("//one///two"));
+        assertEquals("/one/two/", Utils.normalize(" /one/two/?a=b/c "));
+        assertEquals("/one two/", Utils.normalize("/one two"));
+        assertEquals("/one/", Utils.normalize(new StringBuilder("/one/")));
+    }
+
+    @Test
+    void normalizedPathIsReturnedAsIs() {
+        var path = "/one/two/";
+
+        assertSame(path, Utils.normalize(path));
     }
 
     @Test